@@ -0,0 +1,32 @@
+package game;
+
+/**
+ * Prints the simulations per second of MonteCarloAlgorithmPlayer on the empty 19x19 board
+ * (K = 5) for different numbers of rollouts per new leaf, see setLeafBatch.
+ *
+ * <p>Arguments: [time limit in ms], default 2000.
+ */
+public class LeafParallelBenchmark {
+  private static final int[] BATCHES = {1, 2, 4, 8, 16};
+
+  /**
+   * Runs the benchmark.
+   * @param args time limit
+   */
+  public static void main(String[] args) {
+    long timeLimit = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+    connectkParameters parameters = new connectkParameters(19, 19, 5, false, timeLimit);
+    for (int batch : BATCHES) {
+      MonteCarloAlgorithmPlayer player =
+          (MonteCarloAlgorithmPlayer) MonteCarloAlgorithmPlayer.getInstance(1);
+      player.setLeafBatch(batch);
+      State state = new State(parameters);
+      player.calculateMove(state);  // warm up
+      player.calculateMove(state);
+      MonteCarloNode root = player.getRoot();
+      System.out.printf("%s, %2d rollouts per leaf: %8.0f simulations/s, %7.0f tree walks/s%n",
+          parameters, batch, root.getVisits() * 1000.0 / timeLimit,
+          root.getVisits() * 1000.0 / timeLimit / batch);
+    }
+  }
+}
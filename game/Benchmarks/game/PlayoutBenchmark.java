@@ -0,0 +1,47 @@
+package game;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how many uniformly random playouts per second can be run through the
+ * immutable State API, i.e. the work done by every MCTS simulation.
+ */
+public class PlayoutBenchmark {
+  private static final long WARMUP_MILLIS = 2000;
+  private static final long MEASURE_MILLIS = 5000;
+
+  /**
+   * Runs the benchmark for a few representative board configurations.
+   * @param args unused
+   */
+  public static void main(String[] args) {
+    connectkParameters[] configurations = {
+      new connectkParameters(6, 7, 4, true, 0),
+      new connectkParameters(15, 15, 5, false, 0),
+      new connectkParameters(30, 30, 6, false, 0)
+    };
+    for (connectkParameters parameters : configurations) {
+      Random random = new Random(42);
+      runFor(parameters, random, WARMUP_MILLIS);
+      long playouts = runFor(parameters, random, MEASURE_MILLIS);
+      System.out.printf("%s: %.1f playouts/s%n", parameters,
+          playouts * 1000.0 / MEASURE_MILLIS);
+    }
+  }
+
+  // Run random playouts from the empty board for the given time, return how many completed.
+  private static long runFor(connectkParameters parameters, Random random, long millis) {
+    long playouts = 0;
+    long stopTime = System.nanoTime() + millis * 1000000;
+    while (stopTime > System.nanoTime()) {
+      State state = new State(parameters);
+      while (!state.isDone()) {
+        List<GameMove> moves = state.getValidGameMoves();
+        state = state.applyGameMove(moves.get(random.nextInt(moves.size())));
+      }
+      playouts++;
+    }
+    return playouts;
+  }
+}
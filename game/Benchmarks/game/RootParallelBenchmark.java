@@ -0,0 +1,43 @@
+package game;
+
+/**
+ * Plays RootParallelMonteCarloPlayer against MonteCarloAlgorithmPlayer with the same time limit
+ * and prints the win rate of the parallel player. Sides are swapped every game.
+ *
+ * <p>Arguments: [threads] [games] [time limit in ms], default: available processors, 20, 500.
+ */
+public class RootParallelBenchmark {
+
+  /**
+   * Runs the benchmark on a 7x6 board with K = 4 and gravity.
+   * @param args threads, games and time limit
+   */
+  public static void main(String[] args) {
+    int threads = args.length > 0 ? Integer.parseInt(args[0])
+        : Runtime.getRuntime().availableProcessors();
+    int games = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    long timeLimit = args.length > 2 ? Long.parseLong(args[2]) : 500;
+    connectkParameters parameters = new connectkParameters(6, 7, 4, true, timeLimit);
+
+    int wins = 0;
+    int draws = 0;
+    for (int i = 0; i < games; i++) {
+      int parallelId = i % 2 + 1;
+      Player parallel = RootParallelMonteCarloPlayer.getInstance(parallelId, threads);
+      Player single = MonteCarloAlgorithmPlayer.getInstance(3 - parallelId);
+      Game game = parallelId == 1 ? new Game(parallel, single, new State(parameters))
+          : new Game(single, parallel, new State(parameters));
+      while (!game.isDone()) {
+        game.update();
+      }
+      if (game.getWinner() == parallelId) {
+        wins++;
+      } else if (game.getWinner() == 0) {
+        draws++;
+      }
+    }
+    System.out.printf("%s, %d threads vs 1, %d games: %d wins, %d draws, %d losses (%.1f%%)%n",
+        parameters, threads, games, wins, draws, games - wins - draws,
+        100.0 * (wins + 0.5 * draws) / games);
+  }
+}
@@ -0,0 +1,39 @@
+package game;
+
+/**
+ * Prints the simulations per second of TreeParallelMonteCarloPlayer on the empty board
+ * for 1, 2, 4, 8 and 16 threads on a 7x6 (K = 4, gravity) and a 15x15 (K = 5) board.
+ *
+ * <p>Arguments: [time limit in ms], default 2000.
+ */
+public class TreeParallelBenchmark {
+  private static final int[] THREADS = {1, 2, 4, 8, 16};
+
+  /**
+   * Runs the benchmark.
+   * @param args time limit
+   */
+  public static void main(String[] args) {
+    long timeLimit = args.length > 0 ? Long.parseLong(args[0]) : 2000;
+    connectkParameters[] configurations = {
+      new connectkParameters(6, 7, 4, true, timeLimit),
+      new connectkParameters(15, 15, 5, false, timeLimit)
+    };
+    for (connectkParameters parameters : configurations) {
+      double single = 0;
+      for (int threads : THREADS) {
+        TreeParallelMonteCarloPlayer player =
+            (TreeParallelMonteCarloPlayer) TreeParallelMonteCarloPlayer.getInstance(1, threads);
+        State state = new State(parameters);
+        player.calculateMove(state);  // warm up
+        player.calculateMove(state);
+        double perSecond = player.getRoot().getVisits() * 1000.0 / timeLimit;
+        if (threads == 1) {
+          single = perSecond;
+        }
+        System.out.printf("%s, %2d threads: %10.0f simulations/s, speedup %.2f%n",
+            parameters, threads, perSecond, perSecond / single);
+      }
+    }
+  }
+}
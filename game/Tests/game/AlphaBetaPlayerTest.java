@@ -0,0 +1,98 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class AlphaBetaPlayerTest {
+
+	@Test
+	public void testTakesWinningMove() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 4, 0);
+		State state = new State(parameters);
+		for (int i = 0; i < 3; i++) {
+			state = state.applyGameMove(GameMove.getInstance(0, 2));
+			state = state.applyGameMove(GameMove.getInstance(0, 5));
+		}
+		Player classUnderTest = AlphaBetaPlayer.getInstance(1);
+		classUnderTest.calculateMove(state);
+		assertEquals(2, classUnderTest.getMove().getColumn());
+		assertTrue(classUnderTest.getMessage().contains("win in 1"));
+	}
+
+	@Test
+	public void testBlocksLosingMove() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 4, 0);
+		State state = new State(parameters)
+				.applyGameMove(GameMove.getInstance(0, 0))
+				.applyGameMove(GameMove.getInstance(0, 3))
+				.applyGameMove(GameMove.getInstance(0, 0))
+				.applyGameMove(GameMove.getInstance(0, 3))
+				.applyGameMove(GameMove.getInstance(0, 6))
+				.applyGameMove(GameMove.getInstance(0, 3));
+		Player classUnderTest = AlphaBetaPlayer.getInstance(1);
+		classUnderTest.calculateMove(state);
+		assertEquals(3, classUnderTest.getMove().getColumn());
+	}
+
+	@Test
+	public void testDeterministic() {
+		connectkParameters parameters = new connectkParameters(15, 15, 5, false, 0, 3, 0);
+		State state = new State(parameters).applyGameMove(GameMove.getInstance(7, 7));
+		Player first = AlphaBetaPlayer.getInstance(2);
+		Player second = AlphaBetaPlayer.getInstance(2);
+		first.calculateMove(state);
+		second.calculateMove(state);
+		assertEquals(first.getMove(), second.getMove());
+		assertEquals(first.getMessage(), second.getMessage());
+	}
+
+	@Test
+	public void testSolvesSmallBoards() {
+		// Tic-tac-toe is a draw.
+		connectkParameters parameters = new connectkParameters(3, 3, 3, false, 0, 9, 0);
+		Player classUnderTest = AlphaBetaPlayer.getInstance(1);
+		classUnderTest.calculateMove(new State(parameters));
+		assertEquals("depth 9, value 0", classUnderTest.getMessage().substring(0, 16));
+
+		// On a 2x2 board every pair of cells is a line, the first player wins with the second disc.
+		parameters = new connectkParameters(2, 2, 2, false, 0, 4, 0);
+		classUnderTest.calculateMove(new State(parameters));
+		assertTrue(classUnderTest.getMessage(), classUnderTest.getMessage().contains("win in 2"));
+	}
+
+	@Test
+	public void testNodeLimitOnWideBoard() {
+		// At depth 2 almost every node is a leaf, the limit must still be checked on them.
+		connectkParameters parameters = new connectkParameters(30, 30, 6, false, 0, 0, 20000);
+		State state = new State(parameters)
+				.applyGameMove(GameMove.getInstance(15, 15))
+				.applyGameMove(GameMove.getInstance(14, 15));
+		Player classUnderTest = AlphaBetaPlayer.getInstance(1);
+		classUnderTest.calculateMove(state);
+		String message = classUnderTest.getMessage();
+		long nodes = Long.parseLong(message.substring(message.lastIndexOf(", ") + 2,
+				message.length() - " nodes".length()));
+		assertTrue(message, nodes <= 20000 + 1024);
+	}
+
+	@Test
+	public void testTranspositionTable() {
+		TranspositionTable table = new TranspositionTable(4);
+		assertEquals(0, table.get(42));
+
+		table.put(42, -7, 5, TranspositionTable.LOWER, SearchState.packMove(3, 4));
+		long entry = table.get(42);
+		assertEquals(-7, TranspositionTable.getValue(entry));
+		assertEquals(5, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+		assertEquals(SearchState.packMove(3, 4), TranspositionTable.getMove(entry));
+
+		// A shallower result for the same position does not replace a deeper one.
+		table.put(42, 3, 2, TranspositionTable.EXACT, TranspositionTable.NO_MOVE);
+		assertEquals(-7, TranspositionTable.getValue(table.get(42)));
+
+		table.clear();
+		assertEquals(0, table.get(42));
+	}
+}
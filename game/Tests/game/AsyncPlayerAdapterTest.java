@@ -0,0 +1,49 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class AsyncPlayerAdapterTest {
+
+	private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testRequestMove() throws Exception {
+		State state = new State(new connectkParameters(6, 7, 4, true, 0, 100, 0));
+		AsyncPlayer classUnderTest = AsyncPlayerAdapter.getInstance(
+				MonteCarloAlgorithmPlayer.getInstance(1, 1), executor);
+		GameMove move = classUnderTest.requestMove(state).get(10, TimeUnit.SECONDS);
+		assertTrue(state.isAvailable(move));
+		assertEquals(move, classUnderTest.getBestMoveSoFar());
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		State state = new State(new connectkParameters(6, 7, 4, true, 60000));
+		AsyncPlayer classUnderTest = AsyncPlayerAdapter.getInstance(
+				MonteCarloAlgorithmPlayer.getInstance(1, 1), executor);
+		CompletableFuture<GameMove> first = classUnderTest.requestMove(state);
+		while (classUnderTest.getBestMoveSoFar() == null) {
+			Thread.sleep(1);
+		}
+		assertTrue(first.cancel(true));
+
+		// The cancelled search stops, so the next request is served well before the time limit.
+		State next = new State(new connectkParameters(6, 7, 4, true, 0, 100, 0));
+		GameMove move = classUnderTest.requestMove(next).get(10, TimeUnit.SECONDS);
+		assertTrue(next.isAvailable(move));
+	}
+
+}
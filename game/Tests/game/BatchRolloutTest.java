@@ -0,0 +1,54 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchRolloutTest {
+
+	private connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 200, 0);
+	private BatchRollout classUnderTest;
+
+	@Before
+	public void setUp() throws Exception {
+		classUnderTest = new BatchRollout(parameters, 8, new SplittableRandom(1), new ForkJoinPool(4));
+	}
+
+	@Test
+	public void testResultsAddUpToBatches() {
+		SearchState state = new SearchState(parameters);
+		state.makeMove(0, 3);
+		long key = state.getKey();
+		int[] results = new int[3];
+		for (int batch = 0; batch < 50; batch++) {
+			classUnderTest.run(state, results);
+			assertEquals(8 * (batch + 1), results[0] + results[1] + results[2]);
+		}
+		assertTrue(results[1] > 0 && results[2] > 0);
+		assertEquals(1, state.getMarks());
+		assertEquals(key, state.getKey());
+	}
+
+	@Test
+	public void testLeafBatchVisits() {
+		MonteCarloAlgorithmPlayer player = new MonteCarloAlgorithmPlayer(1, new SplittableRandom(1));
+		player.setLeafBatch(4);
+		State state = new State(parameters);
+		player.calculateMove(state);
+		assertTrue(state.isAvailable(player.getMove()));
+
+		// Every iteration adds a batch of 4 rollouts below one child of the root.
+		MonteCarloNode root = player.getRoot();
+		assertEquals(4 * 200, root.getVisits());
+		int visits = 0;
+		for (int i = 0; i < root.getChildCount(); i++) {
+			visits += root.getChild(i).getVisits();
+		}
+		assertEquals(4 * 200, visits);
+	}
+
+}
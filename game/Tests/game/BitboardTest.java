@@ -0,0 +1,121 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitboardTest {
+
+	private connectkParameters parameters;
+	private long[] bits;
+
+	@Before
+	public void setUp() throws Exception {
+		parameters = new connectkParameters(6, 7, 4, true, 1000);
+		bits = new long[Bitboard.words(parameters)];
+	}
+
+	@Test
+	public void testWords() {
+		assertEquals(1, Bitboard.words(parameters));
+		assertEquals(15, Bitboard.words(new connectkParameters(30, 30, 6, false, 1000)));
+	}
+
+	@Test
+	public void testVerticalLine() {
+		for (int row = 2; row < 6; row++) {
+			Bitboard.set(bits, 0, Bitboard.index(parameters, row, 3));
+		}
+		assertTrue(Bitboard.isWin(bits, 0, Bitboard.index(parameters, 2, 3), parameters));
+		assertTrue(Bitboard.hasLine(bits, 0, parameters));
+	}
+
+	@Test
+	public void testNoWrapBetweenColumns() {
+		// Two discs at the bottom of column 0 and two at the top of column 1.
+		Bitboard.set(bits, 0, Bitboard.index(parameters, 4, 0));
+		Bitboard.set(bits, 0, Bitboard.index(parameters, 5, 0));
+		Bitboard.set(bits, 0, Bitboard.index(parameters, 0, 1));
+		Bitboard.set(bits, 0, Bitboard.index(parameters, 1, 1));
+		assertFalse(Bitboard.isWin(bits, 0, Bitboard.index(parameters, 5, 0), parameters));
+		assertFalse(Bitboard.hasLine(bits, 0, parameters));
+	}
+
+	@Test
+	public void testDiagonalLine() {
+		for (int i = 0; i < 4; i++) {
+			Bitboard.set(bits, 0, Bitboard.index(parameters, 5 - i, 2 + i));
+		}
+		assertTrue(Bitboard.isWin(bits, 0, Bitboard.index(parameters, 4, 3), parameters));
+		assertTrue(Bitboard.hasLine(bits, 0, parameters));
+	}
+
+	@Test
+	public void testIncrementalMatchesFullBoardCheck() {
+		Random random = new Random(7);
+		connectkParameters[] configurations = {
+			parameters,
+			new connectkParameters(15, 15, 5, false, 1000),
+			new connectkParameters(30, 30, 6, false, 1000)
+		};
+		for (connectkParameters configuration : configurations) {
+			for (int game = 0; game < 50; game++) {
+				State state = new State(configuration);
+				while (!state.isDone()) {
+					List<GameMove> moves = state.getValidGameMoves();
+					state = state.applyGameMove(moves.get(random.nextInt(moves.size())));
+				}
+				int winner = state.getWinner();
+				long[] board = new long[2 * Bitboard.words(configuration)];
+				for (GameMove move : state) {
+					int player = state.getPlayerAt(move);
+					if (player != 0) {
+						Bitboard.set(board, (player - 1) * Bitboard.words(configuration),
+								Bitboard.index(configuration, move.getRow(), move.getColumn()));
+					}
+				}
+				assertEquals(winner == 1, Bitboard.hasLine(board, 0, configuration));
+				assertEquals(winner == 2,
+						Bitboard.hasLine(board, Bitboard.words(configuration), configuration));
+			}
+		}
+	}
+
+	@Test
+	public void testWinningCellsWithReusedScratch() {
+		Random random = new Random(11);
+		connectkParameters[] configurations = {
+			parameters,
+			new connectkParameters(15, 15, 5, false, 1000),
+			new connectkParameters(12, 12, 4, true, 1000)
+		};
+		for (connectkParameters configuration : configurations) {
+			int words = Bitboard.words(configuration);
+			long[] mask = Bitboard.boardMask(configuration);
+			long[] scratch = new long[Bitboard.scratchLength(configuration)];
+			for (int game = 0; game < 20; game++) {
+				State state = new State(configuration);
+				long[] board = new long[2 * words];
+				while (!state.isDone()) {
+					for (int player = 1; player <= 2; player++) {
+						long[] expected = new long[words];
+						long[] cells = new long[words];
+						assertEquals(Bitboard.winningCells(board, player, configuration, expected),
+								Bitboard.winningCells(board, player, configuration, mask, scratch, cells));
+						assertArrayEquals(expected, cells);
+					}
+					List<GameMove> moves = state.getValidGameMoves();
+					GameMove move = moves.get(random.nextInt(moves.size()));
+					Bitboard.set(board, (state.getCurrentPlayer() - 1) * words,
+							Bitboard.index(configuration, move.getRow(), move.getColumn()));
+					state = state.applyGameMove(move);
+				}
+			}
+		}
+	}
+
+}
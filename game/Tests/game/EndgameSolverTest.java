@@ -0,0 +1,56 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EndgameSolverTest {
+
+	private EndgameSolver classUnderTest;
+
+	@Before
+	public void setUp() throws Exception {
+		classUnderTest = new EndgameSolver(16);
+	}
+
+	@Test
+	public void testSolveEmptyBoards() {
+		SearchState ticTacToe = new SearchState(new connectkParameters(3, 3, 3, false, 0));
+		assertEquals(0, classUnderTest.solve(ticTacToe, 0, 0));
+		assertEquals(0, ticTacToe.getMarks());
+
+		SearchState small = new SearchState(new connectkParameters(2, 2, 2, true, 0));
+		assertEquals(1, classUnderTest.solve(small, 0, 0));
+	}
+
+	@Test
+	public void testTakesWinningMove() {
+		SearchState state = new SearchState(new connectkParameters(6, 7, 4, true, 0));
+		for (int i = 0; i < 3; i++) {
+			state.makeMove(0, 2);
+			state.makeMove(0, 5);
+		}
+		assertEquals(1, classUnderTest.solve(state, 0, 0));
+		assertEquals(2, SearchState.getColumn(classUnderTest.getBestMove()));
+	}
+
+	@Test
+	public void testDoubleThreatLoses() {
+		SearchState state = new SearchState(new connectkParameters(5, 5, 3, false, 0));
+		state.makeMove(0, 0);
+		state.makeMove(2, 1);
+		state.makeMove(4, 4);
+		state.makeMove(2, 2);
+		assertEquals(-1, classUnderTest.solve(state, 0, 0));
+	}
+
+	@Test
+	public void testNodeLimit() {
+		SearchState state = new SearchState(new connectkParameters(6, 7, 4, true, 0));
+		assertEquals(EndgameSolver.UNKNOWN, classUnderTest.solve(state, 2048, 0));
+		assertEquals(-1, classUnderTest.getBestMove());
+		assertEquals(0, state.getMarks());
+	}
+
+}
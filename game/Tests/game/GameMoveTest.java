@@ -44,4 +44,22 @@ public class GameMoveTest {
 		assertEquals(false, classUnderTest.equals(testObject));
 	}
 
+	@Test
+	public void testGetInstanceShared() {
+		assertSame(classUnderTest, GameMove.getInstance(4, 5));
+		assertSame(GameMove.getInstance(29, 29), GameMove.getInstance(29, 29));
+		GameMove offBoard = GameMove.getInstance(-1, 30);
+		assertEquals(-1, offBoard.getRow());
+		assertEquals(30, offBoard.getColumn());
+	}
+
+	@Test
+	public void testPack() {
+		int move = classUnderTest.pack();
+		assertEquals(GameMove.pack(4, 5), move);
+		assertEquals(4, GameMove.unpackRow(move));
+		assertEquals(5, GameMove.unpackColumn(move));
+		assertSame(classUnderTest, GameMove.getInstance(move));
+	}
+
 }
@@ -0,0 +1,86 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IncrementalHeuristicTest {
+
+	private Heuristic heuristic = new Heuristic();
+
+	@Test
+	public void testEmptyBoard() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 1000);
+		SearchState state = new SearchState(parameters);
+		IncrementalHeuristic classUnderTest = new IncrementalHeuristic(parameters);
+		state.setHeuristic(classUnderTest);
+		assertEquals(0, classUnderTest.getOpenLines(1));
+		assertEquals(0, classUnderTest.evaluate(state), 0);
+
+		// A disc in the bottom left corner opens 3 windows: vertical, horizontal and diagonal.
+		state.makeMove(0, 0);
+		assertEquals(3, classUnderTest.getOpenLines(1));
+		assertEquals(3, classUnderTest.evaluate(state), 0);
+	}
+
+	@Test
+	public void testMatchesHeuristic() {
+		connectkParameters[] configurations = {
+			new connectkParameters(6, 7, 4, true, 1000),
+			new connectkParameters(6, 7, 4, false, 1000),
+			new connectkParameters(9, 5, 1, false, 1000),
+			new connectkParameters(15, 15, 5, false, 1000),
+			new connectkParameters(12, 20, 6, true, 1000)
+		};
+		Random random = new Random(5);
+		int[] moves = new int[20 * 15];
+		for (connectkParameters parameters : configurations) {
+			IncrementalHeuristic classUnderTest = new IncrementalHeuristic(parameters);
+			for (int game = 0; game < 10; game++) {
+				SearchState state = new SearchState(parameters);
+				state.setHeuristic(classUnderTest);
+				while (!state.isDone()) {
+					int count = state.getValidMoves(moves);
+					state.makeMove(moves[random.nextInt(count)]);
+					assertEquals(heuristic.evaluate(state.toState()), classUnderTest.evaluate(state), 0);
+					if (random.nextInt(4) == 0) {
+						state.unmakeMove();
+						assertEquals(heuristic.evaluate(state.toState()), classUnderTest.evaluate(state), 0);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLoadResetsCounts() {
+		connectkParameters parameters = new connectkParameters(15, 15, 5, false, 1000);
+		State state = new State(parameters)
+				.applyGameMove(GameMove.getInstance(7, 7))
+				.applyGameMove(GameMove.getInstance(7, 8))
+				.applyGameMove(GameMove.getInstance(8, 8));
+		SearchState searchState = new SearchState(parameters);
+		IncrementalHeuristic classUnderTest = new IncrementalHeuristic(parameters);
+		searchState.setHeuristic(classUnderTest);
+		state.copyInto(searchState);
+		assertEquals(heuristic.evaluate(state), classUnderTest.evaluate(searchState), 0);
+	}
+
+	@Test
+	public void testGain() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, false, 1000);
+		SearchState state = new SearchState(parameters);
+		IncrementalHeuristic classUnderTest = new IncrementalHeuristic(parameters);
+		state.setHeuristic(classUnderTest);
+		int corner = Bitboard.index(parameters, 5, 0);
+		state.makeMove(5, 1);
+		int gain = classUnderTest.getGain(corner, 2);
+		double before = classUnderTest.evaluate(state);
+		state.makeMove(5, 0);
+		assertEquals(before - gain, classUnderTest.evaluate(state), 0);
+		assertEquals(3, gain);
+	}
+
+}
@@ -0,0 +1,86 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class MetricsTest {
+
+	@After
+	public void tearDown() throws Exception {
+		Metrics.setEnabled(false);
+		Metrics.reset();
+	}
+
+	@Test
+	public void testHistogram() {
+		Metrics.Histogram classUnderTest = Metrics.histogram("test.histogram");
+		assertSame(classUnderTest, Metrics.histogram("test.histogram"));
+		classUnderTest.record(13);
+		classUnderTest.record(17);
+		assertEquals(2, classUnderTest.getCount());
+		assertEquals(30, classUnderTest.getSum());
+		assertEquals(17, classUnderTest.getMax());
+		assertEquals(15, classUnderTest.getPercentile(50));
+		assertEquals(17, classUnderTest.getPercentile(99));
+		assertTrue(Metrics.toJson().contains("\"test.histogram\": {\"count\": 2, \"sum\": 30"));
+	}
+
+	@Test
+	public void testSearchMetrics() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 500, 0);
+		Metrics.reset();
+		MonteCarloAlgorithmPlayer.getInstance(1, 1).calculateMove(new State(parameters));
+		assertEquals(0, Metrics.counter("mcts.moves").get());
+
+		Metrics.setEnabled(true);
+		MonteCarloAlgorithmPlayer.getInstance(1, 1).calculateMove(new State(parameters));
+		new State(parameters).applyGameMove(GameMove.getInstance(5, 3));
+		assertEquals(1, Metrics.counter("mcts.moves").get());
+		assertEquals(500, Metrics.histogram("mcts.iterations").getSum());
+		assertEquals(500, Metrics.histogram("mcts.playoutLength").getCount());
+		assertTrue(Metrics.counter("mcts.rolloutNanos").get() > 0);
+		assertEquals(1, Metrics.counter("state.applyGameMove").get());
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		Metrics.registerMBean();
+		Metrics.registerMBean();
+		ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+		Metrics.counter("test.counter").add(3);
+		assertEquals(Boolean.FALSE,
+				ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Enabled"));
+		String json = (String) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Json");
+		assertTrue(json, json.contains("\"test.counter\": 3"));
+	}
+
+	@Test
+	public void testSearchOfProvenRoot() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 500, 0);
+		State state = new State(parameters);
+		for (int i = 0; i < 3; i++) {
+			state = state.applyGameMove(GameMove.getInstance(5 - i, 2))
+					.applyGameMove(GameMove.getInstance(5 - i, 5));
+		}
+		MonteCarloAlgorithmPlayer player =
+				(MonteCarloAlgorithmPlayer) MonteCarloAlgorithmPlayer.getInstance(1, 1);
+		player.setTreeReuse(true);
+		player.setSolverThreshold(0);
+		Metrics.setEnabled(true);
+		player.calculateMove(state);
+		assertNotEquals(0, player.getRoot().getProven());
+
+		// The reused root is proven, so the second search runs no simulations.
+		long searches = Metrics.histogram("mcts.bytesPerIteration").getCount();
+		player.calculateMove(state);
+		assertEquals(2, player.getMove().getColumn());
+		assertEquals(searches, Metrics.histogram("mcts.bytesPerIteration").getCount());
+	}
+
+}
@@ -0,0 +1,228 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MonteCarloAlgorithmPlayerTest {
+
+	private MonteCarloAlgorithmPlayer classUnderTest;
+
+	@Before
+	public void setUp() throws Exception {
+		classUnderTest = new MonteCarloAlgorithmPlayer(1, new SplittableRandom(1));
+	}
+
+	@Test
+	public void testIterationLimit() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 500, 0);
+		classUnderTest.calculateMove(new State(parameters));
+		assertEquals(500, classUnderTest.getRoot().getVisits());
+	}
+
+	@Test
+	public void testNodeLimit() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 0, 300);
+		classUnderTest.calculateMove(new State(parameters));
+		assertEquals(301, classUnderTest.getRoot().size());
+	}
+
+	@Test
+	public void testSameSeedSameGame() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 300, 0);
+		Game first = new Game(MonteCarloAlgorithmPlayer.getInstance(1, 42),
+				MonteCarloAlgorithmPlayer.getInstance(2, 43), new State(parameters));
+		Game second = new Game(MonteCarloAlgorithmPlayer.getInstance(1, 42),
+				MonteCarloAlgorithmPlayer.getInstance(2, 43), new State(parameters));
+		while (!first.isDone()) {
+			first.update();
+			second.update();
+			assertEquals(first.getState(), second.getState());
+		}
+		assertTrue(second.isDone());
+	}
+
+	@Test
+	public void testTakesWinningMove() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 2000, 0);
+		State state = new State(parameters);
+		for (int i = 0; i < 3; i++) {
+			state = state.applyGameMove(GameMove.getInstance(0, 2));
+			state = state.applyGameMove(GameMove.getInstance(0, 6));
+		}
+		classUnderTest.calculateMove(state);
+		assertEquals(2, classUnderTest.getMove().getColumn());
+	}
+
+	@Test
+	public void testFindForcedMove() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 0, 0);
+		SearchState state = new SearchState(parameters);
+		state.makeMove(0, 0);
+		state.makeMove(0, 6);
+		assertEquals(-1, MonteCarloAlgorithmPlayer.findForcedMove(state, -1, -1));
+
+		// Player 2 threatens column 6 once player 1 threatens column 0, winning comes first.
+		for (int i = 0; i < 2; i++) {
+			state.makeMove(0, 0);
+			state.makeMove(0, 6);
+		}
+		assertEquals(SearchState.packMove(2, 0), MonteCarloAlgorithmPlayer.findForcedMove(state, -1, -1));
+		state.makeMove(0, 3);
+		assertEquals(SearchState.packMove(2, 6), MonteCarloAlgorithmPlayer.findForcedMove(state, -1, -1));
+	}
+
+	@Test
+	public void testGuidedSearch() {
+		connectkParameters parameters = new connectkParameters(15, 15, 5, false, 0, 1000, 0);
+		State state = new State(parameters);
+		for (int column = 3; column < 7; column++) {
+			state = state.applyGameMove(GameMove.getInstance(7, column));
+			state = state.applyGameMove(GameMove.getInstance(0, column + 8));
+		}
+		classUnderTest.setGuidedRollouts(true);
+		classUnderTest.setProgressiveBias(1);
+		classUnderTest.calculateMove(state);
+		assertEquals(7, classUnderTest.getMove().getRow());
+		assertTrue(classUnderTest.getMove().getColumn() == 2 || classUnderTest.getMove().getColumn() == 7);
+	}
+
+	@Test
+	public void testSymmetric() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 1000, 0);
+		MonteCarloAlgorithmPlayer player = new MonteCarloAlgorithmPlayer(2, new SplittableRandom(1));
+		player.setSymmetric(true);
+		player.setTreeReuse(true);
+		State state = new State(parameters).applyGameMove(GameMove.getInstance(0, 3));
+		player.calculateMove(state);
+		assertEquals(4, player.getRoot().getChildCount());
+		assertTrue(player.getMove().getColumn() <= 3);
+
+		// After 3, 3 the reply 5 was merged with 1, the mirrored subtree is reused.
+		int column = player.getMove().getColumn();
+		state = state.applyGameMove(player.getMove());
+		state = state.applyGameMove(GameMove.getInstance(0, column == 3 ? 5 : 0));
+		player.calculateMove(state);
+		assertTrue(player.getRoot().getVisits() > 1000);
+		assertTrue(state.isAvailable(player.getMove()));
+	}
+
+	@Test
+	public void testProvenWin() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 100000, 0);
+		State state = new State(parameters);
+		for (int i = 0; i < 3; i++) {
+			state = state.applyGameMove(GameMove.getInstance(0, 2));
+			state = state.applyGameMove(GameMove.getInstance(0, 6));
+		}
+		classUnderTest.calculateMove(state);
+		assertEquals(2, classUnderTest.getMove().getColumn());
+		assertEquals(MonteCarloNode.LOSS, classUnderTest.getRoot().getProven());
+		assertTrue(classUnderTest.getRoot().getVisits() < 100000);
+	}
+
+	@Test
+	public void testSolverThreshold() {
+		connectkParameters parameters = new connectkParameters(3, 3, 3, false, 0, 100, 0);
+		State state = new State(parameters)
+				.applyGameMove(GameMove.getInstance(1, 1))
+				.applyGameMove(GameMove.getInstance(0, 1));
+		classUnderTest.calculateMove(state);
+		assertTrue(classUnderTest.getMessage().startsWith("solved, win"));
+
+		classUnderTest.setSolverThreshold(0);
+		classUnderTest.calculateMove(state);
+		assertTrue(classUnderTest.getMessage().startsWith("100 iterations"));
+	}
+
+	@Test(timeout = 10000)
+	public void testPondering() throws Exception {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 200, 0);
+		classUnderTest.setPondering(true);
+		State state = new State(parameters);
+		classUnderTest.calculateMove(state);
+		state = state.applyGameMove(classUnderTest.getMove());
+
+		// The subtree of the chosen move is searched on the opponent's time.
+		MonteCarloNode pondered = classUnderTest.getRoot();
+		while (pondered.getVisits() < 2000) {
+			Thread.sleep(1);
+		}
+		classUnderTest.stopPondering();
+		MonteCarloNode reply = pondered.getChild(0);
+		for (int i = 1; i < pondered.getChildCount(); i++) {
+			if (pondered.getChild(i).getVisits() > reply.getVisits()) {
+				reply = pondered.getChild(i);
+			}
+		}
+		// The first search ran 200 simulations in total, the rest were run while pondering.
+		int visits = reply.getVisits();
+		assertTrue(visits > 200);
+
+		// The reply's subtree is searched on and keeps the pondered simulations.
+		state = state.applyGameMove(GameMove.getInstance(reply.getMove()));
+		classUnderTest.calculateMove(state);
+		classUnderTest.stopPondering();
+		assertEquals(visits + 200, reply.getVisits());
+	}
+
+	@Test
+	public void testProgressListener() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 2048, 0);
+		List<SearchProgress> snapshots = new ArrayList<>();
+		classUnderTest.setProgressListener(snapshots::add, 0);
+		classUnderTest.calculateMove(new State(parameters));
+
+		// One snapshot every 256 simulations with a zero interval, and the last one.
+		assertEquals(9, snapshots.size());
+		SearchProgress last = snapshots.get(snapshots.size() - 1);
+		assertTrue(last.isDone());
+		assertEquals(2048, last.getIterations());
+		assertEquals(classUnderTest.getRoot().size(), last.getNodes());
+		assertTrue(last.getDepth() >= last.getPrincipalVariation().size());
+		assertEquals(5, last.getTopMoves().size());
+		assertTrue(last.getTopMoves().get(0).getVisits() >= last.getTopMoves().get(1).getVisits());
+		assertEquals(last.getTopMoves().get(0).getMove(), last.getPrincipalVariation().get(0));
+		assertEquals(last.toString(), classUnderTest.getMessage());
+	}
+
+	@Test
+	public void testNodeBudget() {
+		// Eviction keeps every child of the root and the count of nodes in step with the tree,
+		// also when the leaves below the root have as many visits as its children.
+		for (long iterations : new long[] {11, 3000}) {
+			connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, iterations, 0);
+			classUnderTest.setNodeBudget(11);
+			classUnderTest.calculateMove(new State(parameters));
+			MonteCarloNode root = classUnderTest.getRoot();
+			assertEquals(7, root.getChildCount());
+			assertEquals(classUnderTest.getNodeCount(), root.size());
+			assertTrue(root.size() <= 11);
+		}
+	}
+
+	@Test
+	public void testNodeBudgetBelowRootMoves() {
+		// The 225 children of the root cannot be evicted, so a pass frees at most the nodes
+		// added since the last one. It waits for a quarter of the budget of new nodes.
+		connectkParameters parameters = new connectkParameters(15, 15, 5, false, 0, 3000, 0);
+		classUnderTest.setNodeBudget(100);
+		Metrics.reset();
+		Metrics.setEnabled(true);
+		try {
+			classUnderTest.calculateMove(new State(parameters));
+		} finally {
+			Metrics.setEnabled(false);
+		}
+		assertEquals(225, classUnderTest.getRoot().getChildCount());
+		assertEquals(classUnderTest.getNodeCount(), classUnderTest.getRoot().size());
+		long evictions = Metrics.counter("mcts.evictions").get();
+		assertTrue(String.valueOf(evictions), evictions > 0 && evictions <= 3000 / 25);
+	}
+
+}
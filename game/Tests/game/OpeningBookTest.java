@@ -0,0 +1,59 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OpeningBookTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndLoad() throws Exception {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0);
+		SearchState state = new SearchState(parameters);
+		state.makeMove(0, 1);
+		Path path = folder.newFile("book.bin").toPath();
+		OpeningBook.write(path, parameters, Arrays.asList(
+				new OpeningBook.Entry(0, SearchState.packMove(5, 3), 0.5, 100),
+				new OpeningBook.Entry(state.getKey(), SearchState.packMove(5, 2), 0.25, 10)));
+
+		OpeningBook classUnderTest = OpeningBook.load(path);
+		assertEquals(2, classUnderTest.size());
+		assertTrue(classUnderTest.matches(parameters));
+		assertFalse(classUnderTest.matches(new connectkParameters(6, 7, 4, false, 0)));
+		assertEquals(SearchState.packMove(5, 2), classUnderTest.findMove(state));
+		assertEquals(0.25, classUnderTest.get(state.getKey()).getScore(), 1e-4);
+		assertEquals(10, classUnderTest.get(state.getKey()).getVisits());
+
+		// The mirror image of the position is found, with the move mirrored as well.
+		SearchState mirrored = new SearchState(parameters);
+		mirrored.makeMove(0, 5);
+		assertEquals(SearchState.packMove(5, 4), classUnderTest.findMove(mirrored));
+		mirrored.makeMove(0, 0);
+		assertEquals(-1, classUnderTest.findMove(mirrored));
+	}
+
+	@Test
+	public void testGeneratedBookIsUsed() throws Exception {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 200, 0);
+		Collection<OpeningBook.Entry> entries = new OpeningBookGenerator(parameters, 2, 2, 1).generate();
+		assertEquals(3, entries.size());
+		Path path = folder.newFile("generated.bin").toPath();
+		OpeningBook.write(path, parameters, entries);
+
+		MonteCarloAlgorithmPlayer player = (MonteCarloAlgorithmPlayer) MonteCarloAlgorithmPlayer.getInstance(1, 1);
+		player.setOpeningBook(OpeningBook.load(path));
+		player.calculateMove(new State(parameters));
+		assertEquals("opening book", player.getMessage());
+		assertNull(player.getRoot());
+	}
+
+}
@@ -0,0 +1,80 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class RootParallelMonteCarloPlayerTest {
+
+	private RootParallelMonteCarloPlayer classUnderTest;
+
+	@Before
+	public void setUp() throws Exception {
+		classUnderTest = (RootParallelMonteCarloPlayer) RootParallelMonteCarloPlayer.getInstance(1, 3, 1);
+	}
+
+	@Test
+	public void testMergedVisitsAreSumOverWorkers() {
+		State state = new State(new connectkParameters(6, 7, 4, true, 0, 300, 0));
+		classUnderTest.calculateMove(state);
+		Map<Integer, double[]> merged = classUnderTest.mergeStatistics();
+		assertTrue(merged.containsKey(classUnderTest.getMove().pack()));
+		assertTrue(state.isAvailable(classUnderTest.getMove()));
+
+		int rootVisits = 0;
+		for (MonteCarloAlgorithmPlayer worker : classUnderTest.getWorkers()) {
+			rootVisits += worker.getRoot().getVisits();
+		}
+		int mergedVisits = 0;
+		for (Map.Entry<Integer, double[]> entry : merged.entrySet()) {
+			int visits = 0;
+			for (MonteCarloAlgorithmPlayer worker : classUnderTest.getWorkers()) {
+				MonteCarloNode root = worker.getRoot();
+				for (int i = 0; i < root.getChildCount(); i++) {
+					if (root.getChild(i).getMove() == entry.getKey()) {
+						visits += root.getChild(i).getVisits();
+					}
+				}
+			}
+			assertEquals(visits, (int) entry.getValue()[1]);
+			mergedVisits += visits;
+		}
+		// Every simulation of every worker went through one child of its root.
+		assertEquals(rootVisits, mergedVisits);
+		assertEquals(300, rootVisits);
+	}
+
+	@Test
+	public void testIterationLimitSplitAcrossWorkers() {
+		classUnderTest.calculateMove(new State(new connectkParameters(6, 7, 4, true, 0, 301, 0)));
+		MonteCarloAlgorithmPlayer[] workers = classUnderTest.getWorkers();
+		assertEquals(100, workers[0].getRoot().getVisits());
+		assertEquals(100, workers[1].getRoot().getVisits());
+		assertEquals(101, workers[2].getRoot().getVisits());
+	}
+
+	@Test(timeout = 10000)
+	public void testInterruptStopsAllWorkers() throws Exception {
+		State state = new State(new connectkParameters(6, 7, 4, true, 60000));
+		AtomicBoolean interrupted = new AtomicBoolean();
+		Thread search = new Thread(() -> {
+			classUnderTest.calculateMove(state);
+			interrupted.set(Thread.currentThread().isInterrupted());
+		});
+		search.start();
+		while (classUnderTest.getBestMoveSoFar() == null) {
+			Thread.sleep(1);
+		}
+		search.interrupt();
+		search.join();
+
+		// The workers run on the pool, they are stopped by cancel and the interrupt is kept.
+		assertTrue(interrupted.get());
+		assertTrue(state.isAvailable(classUnderTest.getMove()));
+	}
+
+}
@@ -0,0 +1,154 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchStateTest {
+
+	private connectkParameters parameters;
+	private SearchState classUnderTest;
+
+	@Before
+	public void setUp() throws Exception {
+		parameters = new connectkParameters(6, 7, 4, true, 1000);
+		classUnderTest = new SearchState(parameters);
+	}
+
+	@Test
+	public void testPackMove() {
+		int move = SearchState.packMove(29, 17);
+		assertEquals(29, SearchState.getRow(move));
+		assertEquals(17, SearchState.getColumn(move));
+	}
+
+	@Test
+	public void testMakeMoveAppliesGravity() {
+		classUnderTest.makeMove(0, 3);
+		assertEquals(1, classUnderTest.getPlayerAt(5, 3));
+		assertEquals(SearchState.packMove(5, 3), classUnderTest.getLastMove());
+		assertEquals(2, classUnderTest.getCurrentPlayer());
+	}
+
+	@Test
+	public void testUnmakeMoveRestoresWinner() {
+		for (int i = 0; i < 3; i++) {
+			classUnderTest.makeMove(0, 0);
+			classUnderTest.makeMove(0, 1);
+		}
+		classUnderTest.makeMove(0, 0);
+		assertTrue(classUnderTest.isDone());
+		assertEquals(1, classUnderTest.getWinner());
+
+		classUnderTest.unmakeMove();
+		assertFalse(classUnderTest.isDone());
+		assertEquals(6, classUnderTest.getMarks());
+		assertEquals(0, classUnderTest.getPlayerAt(2, 0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnmakeMoveWithoutMove() {
+		classUnderTest.unmakeMove();
+	}
+
+	@Test
+	public void testMatchesState() {
+		Random random = new Random(3);
+		connectkParameters[] configurations = {
+			parameters,
+			new connectkParameters(9, 9, 5, false, 1000)
+		};
+		for (connectkParameters configuration : configurations) {
+			int[] moves = new int[configuration.getRows() * configuration.getColumns()];
+			for (int game = 0; game < 50; game++) {
+				State state = new State(configuration);
+				SearchState searchState = state.toSearchState();
+				while (!state.isDone()) {
+					List<GameMove> valid = state.getValidGameMoves();
+					assertEquals(valid.size(), searchState.getValidMoves(moves));
+					GameMove move = valid.get(random.nextInt(valid.size()));
+					state = state.applyGameMove(move);
+					searchState.makeMove(move.getRow(), move.getColumn());
+					assertEquals(state, searchState.toState());
+				}
+				assertTrue(searchState.isDone());
+				assertEquals(state.getWinner(), searchState.getWinner());
+
+				// Taking back every move gives the empty board again.
+				while (searchState.getMarks() > 0) {
+					searchState.unmakeMove();
+				}
+				assertEquals(new State(configuration), searchState.toState());
+			}
+		}
+	}
+
+	@Test
+	public void testWinningMoves() {
+		connectkParameters noGravity = new connectkParameters(15, 15, 5, false, 1000);
+		classUnderTest = new SearchState(noGravity);
+		for (int column = 3; column < 7; column++) {
+			classUnderTest.makeMove(7, column);
+			classUnderTest.makeMove(0, column);
+		}
+		int marks = classUnderTest.getMarks();
+		assertTrue(classUnderTest.isWinningMove(SearchState.packMove(7, 2), 1));
+		assertTrue(classUnderTest.isWinningMove(SearchState.packMove(7, 7), 1));
+		assertFalse(classUnderTest.isWinningMove(SearchState.packMove(7, 7), 2));
+		assertFalse(classUnderTest.isWinningMove(SearchState.packMove(8, 7), 1));
+		assertEquals(marks, classUnderTest.getMarks());
+		assertEquals(0, classUnderTest.getPlayerAt(7, 7));
+
+		int move = classUnderTest.findWinningMoveNear(SearchState.packMove(7, 5), 1);
+		assertTrue(move == SearchState.packMove(7, 2) || move == SearchState.packMove(7, 7));
+		assertEquals(-1, classUnderTest.findWinningMoveNear(SearchState.packMove(12, 12), 1));
+		assertEquals(-1, classUnderTest.findWinningMoveNear(SearchState.packMove(7, 5), 2));
+	}
+
+	@Test
+	public void testValidMovesAfterUnmake() {
+		connectkParameters[] configurations = {
+			parameters,
+			new connectkParameters(9, 11, 4, false, 1000)
+		};
+		Random random = new Random(8);
+		for (connectkParameters configuration : configurations) {
+			classUnderTest = new SearchState(configuration);
+			int[] moves = new int[99];
+			for (int step = 0; step < 2000; step++) {
+				if (classUnderTest.isDone() || (classUnderTest.getMarks() > 0 && random.nextInt(3) == 0)) {
+					classUnderTest.unmakeMove();
+				} else {
+					classUnderTest.makeMove(classUnderTest.getValidMove(
+							random.nextInt(classUnderTest.getValidMoveCount())));
+				}
+
+				// Every empty cell (with gravity: every empty cell above a disc or the floor).
+				Set<Integer> expected = new HashSet<>();
+				for (int row = 0; row < configuration.getRows(); row++) {
+					for (int column = 0; column < configuration.getColumns(); column++) {
+						boolean landing = row + 1 == configuration.getRows()
+								|| classUnderTest.getPlayerAt(row + 1, column) != 0;
+						if (classUnderTest.getPlayerAt(row, column) == 0
+								&& (!configuration.isGravity() || landing)) {
+							expected.add(SearchState.packMove(row, column));
+						}
+					}
+				}
+				int count = classUnderTest.getValidMoves(moves);
+				Set<Integer> actual = new HashSet<>();
+				for (int i = 0; i < count; i++) {
+					actual.add(moves[i]);
+				}
+				assertEquals(expected, actual);
+				assertEquals(count, classUnderTest.getValidMoveCount());
+			}
+		}
+	}
+}
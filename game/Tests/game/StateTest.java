@@ -2,6 +2,11 @@ package game;
 
 import static org.junit.Assert.*;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -21,10 +26,10 @@ public class StateTest {
 		long time = 1000;
 		parameters = new connectkParameters(rows,columns,length,gravity,time);
 		classUnderTest = new State(parameters);
-		classUnderTest.board[3][5] = 1 ;
+		classUnderTest.setPlayerAt(GameMove.getInstance(3, 5), 1);
 		
 		classUnderTest2 = new State(parameters);
-        classUnderTest2.board[3][5] = 2 ;
+        classUnderTest2.setPlayerAt(GameMove.getInstance(3, 5), 2);
         
 		classUnderTest.winner = 1;
 		
@@ -42,7 +47,6 @@ public class StateTest {
 	}
 
 	@Test
-	//To test- set State.board to public
 	public void testGetPlayerAt() {
 		assertEquals(1, classUnderTest.getPlayerAt(gameMove));
 	}
@@ -72,4 +76,42 @@ public class StateTest {
 	  assertEquals(false, classUnderTest.equals(classUnderTest2));
 	}
 
+	@Test
+	public void testGetWinningGameMoves() {
+		connectkParameters[] configurations = {
+			new connectkParameters(6, 7, 4, true, 1000),
+			new connectkParameters(6, 7, 4, false, 1000),
+			new connectkParameters(4, 4, 1, true, 1000),
+			new connectkParameters(15, 15, 5, false, 1000),
+			new connectkParameters(30, 30, 3, true, 1000),
+			new connectkParameters(30, 30, 6, false, 1000)
+		};
+		Random random = new Random(11);
+		for (connectkParameters configuration : configurations) {
+			int[] moves = new int[900];
+			int[] winning = new int[900];
+			for (int game = 0; game < 20; game++) {
+				State state = new State(configuration);
+				while (!state.isDone()) {
+					// Compare with checking every valid move on its own.
+					SearchState searchState = state.toSearchState();
+					int count = searchState.getValidMoves(moves);
+					for (int player = 1; player <= 2; player++) {
+						Set<GameMove> expected = new HashSet<>();
+						for (int i = 0; i < count; i++) {
+							if (searchState.isWinningMove(moves[i], player)) {
+								expected.add(GameMove.getInstance(SearchState.getRow(moves[i]),
+										SearchState.getColumn(moves[i])));
+							}
+						}
+						assertEquals(expected, new HashSet<>(state.getWinningGameMoves(player)));
+						assertEquals(expected.size(), searchState.getWinningMoves(player, winning));
+						assertEquals(expected.isEmpty(), searchState.findWinningMove(player) == -1);
+					}
+					List<GameMove> valid = state.getValidGameMoves();
+					state = state.applyGameMove(valid.get(random.nextInt(valid.size())));
+				}
+			}
+		}
+	}
 }
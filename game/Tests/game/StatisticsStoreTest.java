@@ -0,0 +1,108 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StatisticsStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 500, 0);
+
+	@Test
+	public void testResultsSurviveReopen() throws Exception {
+		Path directory = folder.getRoot().toPath().resolve("store");
+		StatisticsStore classUnderTest = StatisticsStore.open(directory, parameters);
+		classUnderTest.add(42, 10, 4);
+		classUnderTest.add(42, 6, 2.5);
+		classUnderTest.add(-7, 3, 3);
+		assertEquals(16, classUnderTest.getVisits(42));
+		assertEquals(6.5, classUnderTest.getWins(42), 1e-6);
+		classUnderTest.flush();
+		classUnderTest.close();
+
+		classUnderTest = StatisticsStore.open(directory, parameters);
+		assertEquals(0, classUnderTest.getLogSize());
+		assertEquals(16, classUnderTest.getVisits(42));
+		assertEquals(3, classUnderTest.getVisits(-7));
+		assertEquals(0, classUnderTest.getVisits(1));
+
+		// Results of later sessions are added up with the snapshot.
+		classUnderTest.add(42, 4, 1);
+		assertEquals(1, classUnderTest.getLogSize());
+		assertEquals(20, classUnderTest.getVisits(42));
+		classUnderTest.close();
+		classUnderTest = StatisticsStore.open(directory, parameters);
+		assertEquals(20, classUnderTest.getVisits(42));
+		assertEquals(7.5, classUnderTest.getWins(42), 1e-6);
+		classUnderTest.close();
+	}
+
+	@Test
+	public void testLogMergedBeforeCrashIsNotReplayed() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		Path log = directory.resolve(StatisticsStore.LOG);
+		StatisticsStore classUnderTest = StatisticsStore.open(directory, parameters);
+		long emptyLog = Files.size(log);
+		classUnderTest.add(42, 10, 4);
+		classUnderTest.flush();
+		for (int i = 0; i < 1000 && Files.size(log) == emptyLog; i++) {
+			Thread.sleep(1);
+		}
+		byte[] oldLog = Files.readAllBytes(log);
+		classUnderTest.close();
+		assertTrue(Files.exists(directory.resolve(StatisticsStore.SNAPSHOT_PREFIX + "1.bin")));
+
+		// A crash after the new snapshot was moved into place, before the log was emptied.
+		Files.write(log, oldLog);
+		classUnderTest = StatisticsStore.open(directory, parameters);
+		assertEquals(0, classUnderTest.getLogSize());
+		assertEquals(10, classUnderTest.getVisits(42));
+		classUnderTest.add(42, 1, 1);
+		classUnderTest.close();
+
+		// Older snapshots are deleted once a newer one is in place.
+		assertFalse(Files.exists(directory.resolve(StatisticsStore.SNAPSHOT_PREFIX + "1.bin")));
+		classUnderTest = StatisticsStore.open(directory, parameters);
+		assertEquals(11, classUnderTest.getVisits(42));
+		classUnderTest.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentBoard() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		StatisticsStore.open(directory, parameters).close();
+		StatisticsStore.open(directory, new connectkParameters(6, 7, 5, true, 0));
+	}
+
+	@Test
+	public void testWarmStart() throws Exception {
+		Path directory = folder.getRoot().toPath();
+		StatisticsStore store = StatisticsStore.open(directory, parameters);
+		MonteCarloAlgorithmPlayer player = new MonteCarloAlgorithmPlayer(1, new SplittableRandom(1));
+		player.setStatisticsStore(store);
+		player.calculateMove(new State(parameters));
+		store.close();
+
+		store = StatisticsStore.open(directory, parameters);
+		player = new MonteCarloAlgorithmPlayer(1, new SplittableRandom(2));
+		player.setStatisticsStore(store);
+		player.calculateMove(new State(parameters));
+		MonteCarloNode root = player.getRoot();
+		int visits = 0;
+		for (int i = 0; i < root.getChildCount(); i++) {
+			visits += root.getChild(i).getVisits();
+		}
+		assertTrue(visits > 500);
+		store.close();
+	}
+
+}
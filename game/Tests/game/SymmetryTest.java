@@ -0,0 +1,57 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SymmetryTest {
+
+	@Test
+	public void testGetCount() {
+		assertEquals(1, Symmetry.getInstance(new connectkParameters(6, 7, 4, true, 1000)).getCount());
+		assertEquals(3, Symmetry.getInstance(new connectkParameters(6, 7, 4, false, 1000)).getCount());
+		assertEquals(7, Symmetry.getInstance(new connectkParameters(15, 15, 5, false, 1000)).getCount());
+	}
+
+	@Test
+	public void testRemoveSymmetricMoves() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 1000);
+		Symmetry classUnderTest = Symmetry.getInstance(parameters);
+		SearchState state = new SearchState(parameters);
+		int[] moves = new int[42];
+		int count = state.getValidMoves(moves);
+		assertEquals(1, classUnderTest.getStabilizer(state));
+		assertEquals(4, classUnderTest.removeSymmetricMoves(moves, count, 1));
+
+		state.makeMove(0, 1);
+		assertEquals(0, classUnderTest.getStabilizer(state));
+
+		// An empty square board without gravity: the cells of one eighth, with the diagonals.
+		parameters = new connectkParameters(5, 5, 4, false, 1000);
+		classUnderTest = Symmetry.getInstance(parameters);
+		state = new SearchState(parameters);
+		moves = new int[25];
+		count = state.getValidMoves(moves);
+		assertEquals(6, classUnderTest.removeSymmetricMoves(moves, count,
+				classUnderTest.getStabilizer(state)));
+	}
+
+	@Test
+	public void testFindSymmetry() {
+		connectkParameters parameters = new connectkParameters(5, 5, 4, false, 1000);
+		Symmetry classUnderTest = Symmetry.getInstance(parameters);
+		SearchState from = new SearchState(parameters);
+		from.makeMove(0, 1);
+		from.makeMove(2, 2);
+		SearchState to = new SearchState(parameters);
+		to.makeMove(1, 4);
+		to.makeMove(2, 2);
+		int symmetry = classUnderTest.findSymmetry(from, to);
+		assertTrue(symmetry >= 0);
+		assertEquals(to.getKey(), classUnderTest.getKey(from, symmetry));
+		assertEquals(SearchState.packMove(1, 4), classUnderTest.mapMove(symmetry, SearchState.packMove(0, 1)));
+		to.unmakeMove();
+		assertEquals(-1, classUnderTest.findSymmetry(from, to));
+	}
+
+}
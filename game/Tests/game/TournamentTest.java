@@ -0,0 +1,50 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TournamentTest {
+
+	@Test
+	public void testRun() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 0, 200, 0);
+		Tournament tournament = new Tournament(parameters, "mcts", "random", 10, 2, 5);
+		Tournament.Result result = tournament.run();
+		assertEquals(10, result.getGames());
+		assertEquals(10, result.getWins() + result.getDraws() + result.getLosses());
+		assertTrue(result.getScore() > 0.5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownPlayer() {
+		Tournament.getPlayerFactory("minimax");
+	}
+
+	@Test
+	public void testParseOptions() {
+		Map<String, String> options = Tournament.parseOptions(new String[] {"--games", "10", "--seed", "3"});
+		assertEquals("10", options.get("games"));
+		assertEquals("3", options.get("seed"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOptionWithoutValue() {
+		Tournament.parseOptions(new String[] {"--seed", "3", "--games"});
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownOption() {
+		Tournament.parseOptions(new String[] {"--rounds", "3"});
+	}
+
+	@Test
+	public void testWilsonInterval() {
+		double[] interval = Tournament.Result.wilsonInterval(50, 100);
+		assertEquals(0.404, interval[0], 0.001);
+		assertEquals(0.596, interval[1], 0.001);
+	}
+
+}
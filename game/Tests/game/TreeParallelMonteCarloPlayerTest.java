@@ -0,0 +1,55 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TreeParallelMonteCarloPlayerTest {
+
+	private TreeParallelMonteCarloPlayer classUnderTest;
+
+	@Before
+	public void setUp() throws Exception {
+		classUnderTest = (TreeParallelMonteCarloPlayer) TreeParallelMonteCarloPlayer.getInstance(1, 8, 1);
+	}
+
+	@Test
+	public void testVirtualLossRemoved() {
+		classUnderTest.setVirtualLoss(5);
+		State state = new State(new connectkParameters(6, 7, 4, true, 0, 20000, 0));
+		classUnderTest.calculateMove(state);
+		assertTrue(state.isAvailable(classUnderTest.getMove()));
+
+		// Each simulation took back its virtual loss, so the root counts the simulations only.
+		ConcurrentMonteCarloNode root = classUnderTest.getRoot();
+		assertEquals(20000, root.getVisits());
+		checkVisits(root, 0);
+	}
+
+	@Test
+	public void testNoLostUpdates() {
+		classUnderTest.setVirtualLoss(0);
+		State state = new State(new connectkParameters(6, 7, 4, true, 0, 20000, 0));
+		classUnderTest.calculateMove(state);
+		ConcurrentMonteCarloNode root = classUnderTest.getRoot();
+		assertEquals(20000, root.getVisits());
+		checkVisits(root, 0);
+	}
+
+	// Checks that every simulation through a node went on to at most one child and that a
+	// created node ended the simulation that created it, returns the visits of the node.
+	private int checkVisits(ConcurrentMonteCarloNode node, int depth) {
+		int childVisits = 0;
+		for (int i = 0; i < node.getChildSlots(); i++) {
+			ConcurrentMonteCarloNode child = node.getChild(i);
+			if (child != null) {
+				childVisits += checkVisits(child, depth + 1);
+			}
+		}
+		assertTrue(node.getWins() >= 0 && node.getWins() <= node.getVisits());
+		assertTrue(node.getVisits() >= childVisits + (depth == 0 ? 0 : 1));
+		return node.getVisits();
+	}
+
+}
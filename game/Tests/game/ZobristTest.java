@@ -0,0 +1,73 @@
+package game;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ZobristTest {
+
+	@Test
+	public void testKeyIsIndependentOfMoveOrder() {
+		connectkParameters parameters = new connectkParameters(5, 5, 4, false, 1000);
+		State first = new State(parameters)
+				.applyGameMove(GameMove.getInstance(0, 0))
+				.applyGameMove(GameMove.getInstance(1, 1))
+				.applyGameMove(GameMove.getInstance(2, 2));
+		State second = new State(parameters)
+				.applyGameMove(GameMove.getInstance(2, 2))
+				.applyGameMove(GameMove.getInstance(1, 1))
+				.applyGameMove(GameMove.getInstance(0, 0));
+		assertEquals(first.getKey(), second.getKey());
+		assertEquals(first.hashCode(), second.hashCode());
+		assertEquals(first, second);
+	}
+
+	@Test
+	public void testSearchStateKeyMatchesState() {
+		connectkParameters parameters = new connectkParameters(6, 7, 4, true, 1000);
+		SearchState searchState = new SearchState(parameters);
+		State state = new State(parameters);
+		for (int column : new int[] {3, 3, 2, 4, 1}) {
+			searchState.makeMove(0, column);
+			state = state.applyGameMove(GameMove.getInstance(0, column));
+			assertEquals(state.getKey(), searchState.getKey());
+		}
+		searchState.unmakeMove();
+		searchState.unmakeMove();
+		assertEquals(new State(parameters).applyGameMove(GameMove.getInstance(0, 3))
+				.applyGameMove(GameMove.getInstance(0, 3))
+				.applyGameMove(GameMove.getInstance(0, 2)).getKey(), searchState.getKey());
+	}
+
+	@Test
+	public void testCollisionRate() {
+		Random random = new Random(11);
+		connectkParameters[] configurations = {
+			new connectkParameters(6, 7, 4, true, 1000),
+			new connectkParameters(15, 15, 5, false, 1000),
+			new connectkParameters(30, 30, 6, false, 1000)
+		};
+		for (connectkParameters parameters : configurations) {
+			Map<Long, State> seen = new HashMap<>();
+			int collisions = 0;
+			for (int game = 0; game < 2000 && seen.size() < 200000; game++) {
+				State state = new State(parameters);
+				while (!state.isDone()) {
+					List<GameMove> moves = state.getValidGameMoves();
+					state = state.applyGameMove(moves.get(random.nextInt(moves.size())));
+					State previous = seen.putIfAbsent(state.getKey(), state);
+					if (previous != null && !previous.equals(state)) {
+						collisions++;
+					}
+				}
+			}
+			assertEquals(parameters.toString(), 0, collisions);
+		}
+	}
+
+}
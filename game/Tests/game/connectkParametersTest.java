@@ -39,6 +39,22 @@ public class connectkParametersTest {
 		assertEquals(2000, classUnderTest.getTimeLimit());
 	}
 
+	@Test
+	public void testSearchLimits() {
+		assertEquals(0, classUnderTest.getIterationLimit());
+		assertEquals(0, classUnderTest.getNodeLimit());
+		assertTrue(classUnderTest.hasTimeLimit());
+
+		connectkParameters limited = new connectkParameters(4, 5, 4, true, 0, 1000, 0);
+		assertEquals(1000, limited.getIterationLimit());
+		assertFalse(limited.hasTimeLimit());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeIterationLimit() {
+		new connectkParameters(4, 5, 4, true, 0, -1, 0);
+	}
+
 	@Test
 	public void testIsGravity() {
 		assertEquals(true, classUnderTest.isGravity());
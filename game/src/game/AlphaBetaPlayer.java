@@ -0,0 +1,346 @@
+package game;
+
+/**
+ * A player searching the game tree with iterative deepening alpha-beta (negamax)
+ * and the heuristic at the horizon.
+ *
+ * <p>Every iteration searches one ply deeper than the last until the budget of
+ * connectkParameters is exhausted: the time limit, the iteration limit as the maximum
+ * depth and the node limit as the number of positions searched. The move of the
+ * last completed iteration is played. Results are kept in a transposition table
+ * keyed by the Zobrist key, and the best move found for a position is searched first
+ * in the next iteration. Other moves are searched from the center outwards.
+ * The search is deterministic, with the same limits it always plays the same move.
+ */
+class AlphaBetaPlayer implements Player {
+  private static final int WIN = 1000000;           // value of a win at the root
+  private static final int INFINITY = WIN + 1;
+  private static final int MAX_DEPTH = 0xff;        // largest depth in the table
+  private static final int DEFAULT_TABLE_BITS = 18;  // 4 MB
+
+  private int id;
+  private int tableBits;
+  private TranspositionTable table;
+  private GameMove chosenGameMove;
+  private String message;
+
+  // Search state, valid during calculateMove.
+  private connectkParameters parameters;
+  private IncrementalHeuristic heuristic;
+  private volatile SearchBudget budget;
+  private int[] ranks;        // ranks[column * rows + row], smaller is nearer the center
+  private int[][] moves;      // moves[ply], the valid moves at ply in search order
+  private int completedDepth;
+  private long nodes;
+  private boolean aborted;
+  private int bestRootMove;
+  private volatile int bestMoveSoFar = -1;  // packed move of the last completed depth
+
+  /**
+   * Get an instance of an AlphaBetaPlayer
+   *
+   * @param id  the id of the player, 1 or 2
+   * @return an AlphaBetaPlayer object, not null
+   */
+  public static Player getInstance(int id) {
+    assert (id == 1 || id == 2);
+
+    return new AlphaBetaPlayer(id, DEFAULT_TABLE_BITS);
+  }
+
+  /**
+   * Constructor
+   * @param id Player ID
+   * @param tableBits The transposition table has 2^tableBits entries of 16 bytes
+   */
+  protected AlphaBetaPlayer(int id, int tableBits) {
+    assert (id == 1 || id == 2);
+    assert (0 < tableBits && tableBits <= 30);
+
+    this.id = id;
+    this.tableBits = tableBits;
+  }
+
+  @Override
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Searches deeper and deeper until the budget is exhausted and chooses the best move
+   * of the deepest completed search. Cancelling or interrupting the search stops it
+   * once the first depth is completed.
+   * @param state Current state
+   */
+  @Override
+  public void calculateMove(State state) {
+    assert (state != null);
+    assert (!state.isDone());
+
+    if (table == null) {
+      table = new TranspositionTable(tableBits);
+    }
+    if (heuristic == null || !isSameBoard(parameters, state.getconnectkParameters())) {
+      parameters = state.getconnectkParameters();
+      heuristic = new IncrementalHeuristic(parameters);
+      ranks = computeRanks(parameters);
+      moves = new int[parameters.getRows() * parameters.getColumns() + 1][];
+      table.clear();
+    }
+    parameters = state.getconnectkParameters();
+    SearchState searchState = state.toSearchState();
+    searchState.setHeuristic(heuristic);
+
+    budget = new SearchBudget(parameters);
+    bestMoveSoFar = -1;
+    nodes = 0;
+    aborted = false;
+    completedDepth = 0;
+    int empty = parameters.getRows() * parameters.getColumns() - searchState.getMarks();
+    int bestMove = -1;
+    int value = 0;
+    for (int depth = 1; depth <= Math.min(empty, MAX_DEPTH); depth++) {
+      if (depth > 1 && budget.isExhausted(completedDepth, nodes)) {
+        break;
+      }
+      int result = searchRoot(searchState, depth);
+      if (aborted) {
+        break;
+      }
+      bestMove = bestRootMove;
+      bestMoveSoFar = bestMove;
+      value = result;
+      completedDepth = depth;
+      if (Math.abs(value) > WIN - MAX_DEPTH) {
+        break;  // proven win or loss
+      }
+    }
+
+    assert (bestMove != -1);
+
+    chosenGameMove = GameMove.getInstance(bestMove);
+    message = "depth " + completedDepth + ", value " + describe(value) + ", " + nodes + " nodes";
+  }
+
+  // Searches all moves of the root with a full window and remembers the best one.
+  private int searchRoot(SearchState state, int depth) {
+    int count = generateMoves(state, 0, table.get(state.getKey()));
+    int[] rootMoves = moves[0];
+    int alpha = -INFINITY;
+    int best = rootMoves[0];
+    for (int i = 0; i < count; i++) {
+      state.makeMove(rootMoves[i]);
+      int value = -search(state, depth - 1, 1, -INFINITY, -alpha);
+      state.unmakeMove();
+      if (aborted) {
+        return 0;
+      }
+      if (value > alpha) {
+        alpha = value;
+        best = rootMoves[i];
+      }
+    }
+    bestRootMove = best;
+    table.put(state.getKey(), alpha, depth, TranspositionTable.EXACT, best);
+    return alpha;
+  }
+
+  /**
+   * Negamax search with alpha-beta pruning.
+   * @param state the position, restored on return
+   * @param depth remaining depth
+   * @param ply distance from the root
+   * @param alpha lower bound of the value
+   * @param beta upper bound of the value
+   * @return the value for the player to move
+   */
+  private int search(SearchState state, int depth, int ply, int alpha, int beta) {
+    if (state.isDone()) {
+      // The player who just moved won, earlier wins are better.
+      return state.getWinner() == 0 ? 0 : -(WIN - ply);
+    }
+    nodes++;
+    // Checked before the leaf return, on wide boards most nodes are leaves. Interior nodes
+    // sort all moves, next to that a check of the budget is cheap.
+    if (completedDepth > 0 && (depth > 0 || (nodes & 0x3ff) == 0)
+        && budget.isExhausted(completedDepth, nodes)) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+    if (depth == 0) {
+      int value = heuristic.getOpenLines(1) - heuristic.getOpenLines(2);
+      return state.getCurrentPlayer() == 1 ? value : -value;
+    }
+
+    long entry = table.get(state.getKey());
+    if (entry != 0 && TranspositionTable.getDepth(entry) >= depth) {
+      int value = fromTable(TranspositionTable.getValue(entry), ply);
+      int bound = TranspositionTable.getBound(entry);
+      if (bound == TranspositionTable.EXACT
+          || (bound == TranspositionTable.LOWER && value >= beta)
+          || (bound == TranspositionTable.UPPER && value <= alpha)) {
+        return value;
+      }
+    }
+
+    int count = generateMoves(state, ply, entry);
+    int[] plyMoves = moves[ply];
+    int originalAlpha = alpha;
+    int best = -INFINITY;
+    int bestMove = TranspositionTable.NO_MOVE;
+    for (int i = 0; i < count; i++) {
+      state.makeMove(plyMoves[i]);
+      int value = -search(state, depth - 1, ply + 1, -beta, -alpha);
+      state.unmakeMove();
+      if (aborted) {
+        return 0;
+      }
+      if (value > best) {
+        best = value;
+        bestMove = plyMoves[i];
+      }
+      if (value > alpha) {
+        alpha = value;
+        if (alpha >= beta) {
+          break;
+        }
+      }
+    }
+
+    int bound = best <= originalAlpha ? TranspositionTable.UPPER
+        : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+    table.put(state.getKey(), toTable(best, ply), depth, bound, bestMove);
+    return best;
+  }
+
+  // Writes the valid moves into moves[ply], see orderMoves. Returns the number of moves.
+  private int generateMoves(SearchState state, int ply, long entry) {
+    if (moves[ply] == null) {
+      moves[ply] = new int[parameters.getRows() * parameters.getColumns()];
+    }
+    return orderMoves(state, moves[ply], entry, ranks);
+  }
+
+  // Writes the valid moves into moves: the best move of the table entry first, then by
+  // the ranks of computeRanks. Returns the number of moves. Package-private for EndgameSolver.
+  static int orderMoves(SearchState state, int[] moves, long entry, int[] ranks) {
+    int count = state.getValidMoves(moves);
+    int tableMove = entry == 0 ? TranspositionTable.NO_MOVE : TranspositionTable.getMove(entry);
+    int rows = state.getconnectkParameters().getRows();
+
+    // Insertion sort by rank, the table move gets rank -1.
+    for (int i = 1; i < count; i++) {
+      int move = moves[i];
+      int rank = rankOf(move, tableMove, ranks, rows);
+      int j = i - 1;
+      while (j >= 0 && rank < rankOf(moves[j], tableMove, ranks, rows)) {
+        moves[j + 1] = moves[j];
+        j--;
+      }
+      moves[j + 1] = move;
+    }
+    return count;
+  }
+
+  // Rank of a move for orderMoves.
+  private static int rankOf(int move, int tableMove, int[] ranks, int rows) {
+    return move == tableMove ? -1
+        : ranks[SearchState.getColumn(move) * rows + SearchState.getRow(move)];
+  }
+
+  // Ranks the cells by their distance from the center, ranks[column * rows + row].
+  // Package-private for EndgameSolver.
+  static int[] computeRanks(connectkParameters parameters) {
+    int rows = parameters.getRows();
+    int columns = parameters.getColumns();
+    int[] ranks = new int[rows * columns];
+    for (int column = 0; column < columns; column++) {
+      for (int row = 0; row < rows; row++) {
+        // Twice the distance, so the center of an even board is not a fraction.
+        int rowDistance = Math.abs(2 * row - (rows - 1));
+        int columnDistance = Math.abs(2 * column - (columns - 1));
+        ranks[column * rows + row] = (rowDistance + columnDistance) * 64 + columnDistance;
+      }
+    }
+    return ranks;
+  }
+
+  // Win values in the table are stored relative to the position, not the root.
+  private static int toTable(int value, int ply) {
+    if (value > WIN - MAX_DEPTH - 1) {
+      return value + ply;
+    } else if (value < -(WIN - MAX_DEPTH - 1)) {
+      return value - ply;
+    }
+    return value;
+  }
+
+  // Inverse of toTable.
+  private static int fromTable(int value, int ply) {
+    if (value > WIN - MAX_DEPTH - 1) {
+      return value - ply;
+    } else if (value < -(WIN - MAX_DEPTH - 1)) {
+      return value + ply;
+    }
+    return value;
+  }
+
+  // Text for a value, with wins and losses as the number of moves.
+  private static String describe(int value) {
+    if (value > WIN - MAX_DEPTH) {
+      return "win in " + (WIN - value + 1) / 2;
+    } else if (value < -(WIN - MAX_DEPTH)) {
+      return "loss in " + (WIN + value) / 2;
+    }
+    return String.valueOf(value);
+  }
+
+  // Checks if two parameters have the same board, then the heuristic can be reused.
+  private static boolean isSameBoard(connectkParameters first, connectkParameters second) {
+    return first.getRows() == second.getRows() && first.getColumns() == second.getColumns()
+        && first.getWinLength() == second.getWinLength()
+        && first.isGravity() == second.isGravity();
+  }
+
+  /**
+   * Returns the chosen best move.
+   */
+  @Override
+  public GameMove getMove() {
+    assert (chosenGameMove != null);
+
+    return chosenGameMove;
+  }
+
+  @Override
+  public void cancel() {
+    SearchBudget current = budget;
+    if (current != null) {
+      current.cancel();
+    }
+  }
+
+  /**
+   * The best move of the deepest completed search so far.
+   */
+  @Override
+  public GameMove getBestMoveSoFar() {
+    int move = bestMoveSoFar;
+    return move < 0 ? null : GameMove.getInstance(move);
+  }
+
+  @Override
+  public String toString() {
+    return "Alpha-Beta Search";
+  }
+
+  /**
+   * Describes the last search: depth, value and number of positions searched.
+   */
+  @Override
+  public String getMessage() {
+    return message;
+  }
+}
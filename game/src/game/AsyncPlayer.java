@@ -0,0 +1,36 @@
+package game;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A player whose moves are calculated without blocking the caller, e.g. to run many games
+ * on a shared executor. Players implementing Player are wrapped by AsyncPlayerAdapter.
+ */
+public interface AsyncPlayer {
+
+  /**
+   * Returns the ID of the player
+   * @return Integer ID of the player
+   */
+  int getId();
+
+  /**
+   * Starts calculating the next move. Requests are served one after another.
+   * Cancelling the returned future stops its search as soon as the player can.
+   * @param state current state, not done
+   * @return the future move, not null
+   */
+  CompletableFuture<GameMove> requestMove(State state);
+
+  /**
+   * The best move of the running request so far, safe to call from any thread.
+   * @return the move, or null if none is known yet or the player cannot tell
+   */
+  GameMove getBestMoveSoFar();
+
+  /**
+   * Used to receive messages
+   * @return String message about the game
+   */
+  String getMessage();
+}
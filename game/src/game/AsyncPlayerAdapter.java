@@ -0,0 +1,123 @@
+package game;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the blocking calculateMove and getMove of a Player on an executor.
+ *
+ * <p>Cancelling a future of requestMove calls Player.cancel and interrupts the thread of
+ * its search, so the player returns soon and the next request can start. Its move is
+ * dropped. The interrupt is cleared before the thread goes back to the executor.
+ */
+class AsyncPlayerAdapter implements AsyncPlayer {
+  private Player player;
+  private Executor executor;
+  private CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+  private CompletableFuture<GameMove> running;  // request being searched, guarded by this
+  private Thread searchThread;                  // thread searching it, guarded by this
+
+  /**
+   * Get an instance of an AsyncPlayerAdapter
+   *
+   * @param player  the player, only used through the adapter while requests are running
+   * @param executor  runs the searches, may be shared by many adapters
+   * @return an AsyncPlayer object, not null
+   */
+  public static AsyncPlayer getInstance(Player player, Executor executor) {
+    assert (player != null);
+    assert (executor != null);
+
+    return new AsyncPlayerAdapter(player, executor);
+  }
+
+  /**
+   * Constructor
+   * @param player The wrapped player
+   * @param executor Executor of the searches
+   */
+  protected AsyncPlayerAdapter(Player player, Executor executor) {
+    assert (player != null);
+    assert (executor != null);
+
+    this.player = player;
+    this.executor = executor;
+  }
+
+  @Override
+  public int getId() {
+    return player.getId();
+  }
+
+  @Override
+  public synchronized CompletableFuture<GameMove> requestMove(State state) {
+    assert (state != null);
+    assert (!state.isDone());
+
+    CompletableFuture<GameMove> move = new CompletableFuture<>();
+    move.whenComplete((result, error) -> {
+      if (move.isCancelled()) {
+        stop(move);
+      }
+    });
+    last = last.thenRunAsync(() -> search(state, move), executor).exceptionally(error -> {
+      move.completeExceptionally(error);   // e.g. rejected by the executor
+      return null;
+    });
+    return move;
+  }
+
+  // Calculates the move of a request, unless it has been cancelled before it started.
+  private void search(State state, CompletableFuture<GameMove> move) {
+    synchronized (this) {
+      if (move.isDone()) {
+        return;
+      }
+      running = move;
+      searchThread = Thread.currentThread();
+    }
+    try {
+      player.calculateMove(state);
+      move.complete(player.getMove());
+    } catch (RuntimeException | Error error) {
+      move.completeExceptionally(error);
+    } finally {
+      synchronized (this) {
+        running = null;
+        searchThread = null;
+      }
+      Thread.interrupted();
+    }
+  }
+
+  // Stops the search of a cancelled request if it is running.
+  private synchronized void stop(CompletableFuture<GameMove> move) {
+    if (running == move) {
+      player.cancel();
+      searchThread.interrupt();
+    }
+  }
+
+  @Override
+  public GameMove getBestMoveSoFar() {
+    return player.getBestMoveSoFar();
+  }
+
+  @Override
+  public String getMessage() {
+    return player.getMessage();
+  }
+
+  /**
+   * Getter for the wrapped player.
+   * @return the player, not null
+   */
+  public Player getPlayer() {
+    return player;
+  }
+
+  @Override
+  public String toString() {
+    return player.toString();
+  }
+}
@@ -0,0 +1,107 @@
+package game;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a batch of random rollouts from the same position in parallel on a ForkJoinPool
+ * (leaf parallelisation). Every rollout slot keeps its own SearchState and random number
+ * generator between batches, so a batch only allocates the fork/join tasks.
+ */
+class BatchRollout {
+  private ForkJoinPool pool;
+  private SearchState[] states;
+  private SplittableRandom[] randoms;
+  private int[] winners;
+  private boolean guided = false;
+
+  /**
+   * Constructor
+   * @param parameters Parameters of the boards the rollouts are run on
+   * @param size Number of rollouts per batch
+   * @param random Random number generator, used to seed the generators of the rollouts
+   * @param pool The pool running the rollouts
+   */
+  public BatchRollout(connectkParameters parameters, int size, SplittableRandom random,
+      ForkJoinPool pool) {
+    assert (parameters != null);
+    assert (size >= 1);
+    assert (random != null);
+    assert (pool != null);
+
+    this.pool = pool;
+    this.states = new SearchState[size];
+    this.randoms = new SplittableRandom[size];
+    this.winners = new int[size];
+    for (int i = 0; i < size; i++) {
+      states[i] = new SearchState(parameters);
+      randoms[i] = random.split();
+    }
+  }
+
+  /**
+   * Getter for the parameters of the boards.
+   * @return the parameters given to the constructor
+   */
+  public connectkParameters getconnectkParameters() {
+    return states[0].getconnectkParameters();
+  }
+
+  /**
+   * Lets the rollouts take immediate wins and block immediate losses,
+   * see MonteCarloAlgorithmPlayer.setGuidedRollouts.
+   * @param guided true for guided rollouts
+   */
+  public void setGuided(boolean guided) {
+    this.guided = guided;
+  }
+
+  /**
+   * Runs all rollouts of the batch from the given position.
+   * @param state The position, not changed
+   * @param results Array of 3, results[p] is increased by the number of rollouts
+   *     won by player p (0 for a draw)
+   */
+  public void run(SearchState state, int[] results) {
+    assert (state != null);
+    assert (results != null && results.length == 3);
+
+    for (SearchState copy : states) {
+      state.copyInto(copy);
+    }
+    pool.invoke(new Rollouts(0, states.length));
+    for (int winner : winners) {
+      results[winner]++;
+    }
+  }
+
+  // Plays random moves until the game is done.
+  private void runRollout(int index) {
+    SearchState state = states[index];
+    MonteCarloAlgorithmPlayer.playRollout(state, randoms[index], guided);
+    winners[index] = state.getWinner();
+  }
+
+  // Splits the rollouts [from, to) in halves until single rollouts are left.
+  private class Rollouts extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private int from;
+    private int to;
+
+    Rollouts(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        runRollout(from);
+      } else {
+        int middle = (from + to) >>> 1;
+        invokeAll(new Rollouts(from, middle), new Rollouts(middle, to));
+      }
+    }
+  }
+}
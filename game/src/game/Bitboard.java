@@ -0,0 +1,382 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Static helpers for the bitboards used to store the discs of each player.
+ *
+ * <p>The board is stored column by column with one extra, always empty, sentinel bit on top
+ * of every column, i.e. the cell (row, column) is bit column * (rows + 1) + row.
+ * The sentinel bits stop vertical and diagonal lines from wrapping into the next column,
+ * so a line in any direction is a constant bit distance apart:
+ * 1 (vertical), rows + 1 (horizontal), rows (positive diagonal) and rows + 2 (negative diagonal).
+ * A 30x30 board needs 930 bits, i.e. 15 longs per player.
+ */
+final class Bitboard {
+
+  private Bitboard() {
+  }
+
+  /**
+   * Number of bits used by one column, including the sentinel.
+   * @param parameters the board parameters
+   * @return rows + 1
+   */
+  static int height(connectkParameters parameters) {
+    return parameters.getRows() + 1;
+  }
+
+  /**
+   * Number of bits used by the whole board of one player.
+   * @param parameters the board parameters
+   * @return columns * (rows + 1)
+   */
+  static int size(connectkParameters parameters) {
+    return parameters.getColumns() * height(parameters);
+  }
+
+  /**
+   * Number of longs needed to store the board of one player.
+   * @param parameters the board parameters
+   * @return the number of words
+   */
+  static int words(connectkParameters parameters) {
+    return (size(parameters) + 63) >>> 6;
+  }
+
+  /**
+   * Bit index of a cell.
+   * @param parameters the board parameters
+   * @param row the row
+   * @param column the column
+   * @return the bit index of (row, column)
+   */
+  static int index(connectkParameters parameters, int row, int column) {
+    return column * height(parameters) + row;
+  }
+
+  /**
+   * Checks a single bit.
+   * @param bits the bitboard
+   * @param offset first word of the player's board within bits
+   * @param index bit index
+   * @return true if the bit is set
+   */
+  static boolean get(long[] bits, int offset, int index) {
+    return (bits[offset + (index >>> 6)] & (1L << index)) != 0;
+  }
+
+  /**
+   * Sets a single bit.
+   * @param bits the bitboard
+   * @param offset first word of the player's board within bits
+   * @param index bit index
+   */
+  static void set(long[] bits, int offset, int index) {
+    bits[offset + (index >>> 6)] |= 1L << index;
+  }
+
+  /**
+   * Clears a single bit.
+   * @param bits the bitboard
+   * @param offset first word of the player's board within bits
+   * @param index bit index
+   */
+  static void clear(long[] bits, int offset, int index) {
+    bits[offset + (index >>> 6)] &= ~(1L << index);
+  }
+
+  /**
+   * Checks whether the (set) bit at index is part of a line of at least winLength bits
+   * in any of the 4 directions. Only the cells around index are looked at,
+   * so this is the incremental win check after a single disc has been placed.
+   * @param bits the bitboard
+   * @param offset first word of the player's board within bits
+   * @param index bit index of the last placed disc
+   * @param parameters the board parameters
+   * @return true if the disc completes a line of winLength
+   */
+  static boolean isWin(long[] bits, int offset, int index, connectkParameters parameters) {
+    int height = height(parameters);
+    return lineLength(bits, offset, index, 1, parameters) >= parameters.getWinLength()
+        || lineLength(bits, offset, index, height, parameters) >= parameters.getWinLength()
+        || lineLength(bits, offset, index, height - 1, parameters) >= parameters.getWinLength()
+        || lineLength(bits, offset, index, height + 1, parameters) >= parameters.getWinLength();
+  }
+
+  /**
+   * Length of the chain of set bits through index in one direction,
+   * capped at winLength.
+   * @param bits the bitboard
+   * @param offset first word of the player's board within bits
+   * @param index bit index, counted as set
+   * @param step bit distance between neighbouring cells of the line
+   * @param parameters the board parameters
+   * @return the length of the chain, at most winLength
+   */
+  static int lineLength(long[] bits, int offset, int index, int step,
+      connectkParameters parameters) {
+    int winLength = parameters.getWinLength();
+    int size = size(parameters);
+    int length = 1;
+    for (int i = index + step; length < winLength && i < size && get(bits, offset, i); i += step) {
+      length++;
+    }
+    for (int i = index - step; length < winLength && i >= 0 && get(bits, offset, i); i -= step) {
+      length++;
+    }
+    return length;
+  }
+
+  /**
+   * Shift-and-mask check of a whole board for a line of the given length in one direction:
+   * after and-ing the board with itself shifted by step, 2 * step, ... a bit is still set
+   * exactly where a line starts.
+   * @param bits the bitboard
+   * @param offset first word of the player's board within bits
+   * @param words number of words of the player's board
+   * @param step bit distance between neighbouring cells of the line
+   * @param length the required line length
+   * @return true if the board contains such a line
+   */
+  static boolean hasLine(long[] bits, int offset, int words, int step, int length) {
+    assert (length >= 1);
+
+    long[] line = new long[words];
+    long[] shifted = new long[words];
+    System.arraycopy(bits, offset, line, 0, words);
+    int covered = 1;
+    while (covered < length) {
+      int shift = Math.min(covered, length - covered);
+      shiftRight(line, 0, words, step * shift, shifted, 0);
+      boolean any = false;
+      for (int i = 0; i < words; i++) {
+        line[i] &= shifted[i];
+        any |= line[i] != 0;
+      }
+      if (!any) {
+        return false;
+      }
+      covered += shift;
+    }
+    for (long word : line) {
+      if (word != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks a whole board for a line of winLength in any direction.
+   * @param bits the bitboard
+   * @param offset first word of the player's board within bits
+   * @param parameters the board parameters
+   * @return true if the player owns a line of winLength
+   */
+  static boolean hasLine(long[] bits, int offset, connectkParameters parameters) {
+    int words = words(parameters);
+    int height = height(parameters);
+    int winLength = parameters.getWinLength();
+    return hasLine(bits, offset, words, 1, winLength)
+        || hasLine(bits, offset, words, height, winLength)
+        || hasLine(bits, offset, words, height - 1, winLength)
+        || hasLine(bits, offset, words, height + 1, winLength);
+  }
+
+  /**
+   * The cells of the board without the sentinel bits.
+   * @param parameters the board parameters
+   * @return a new array of words(parameters) longs
+   */
+  static long[] boardMask(connectkParameters parameters) {
+    int height = height(parameters);
+    long[] board = new long[words(parameters)];
+    for (int column = 0; column < parameters.getColumns(); column++) {
+      setRange(board, column * height, parameters.getRows());
+    }
+    return board;
+  }
+
+  /**
+   * Number of longs of scratch space winningCells needs.
+   * @param parameters the board parameters
+   * @return the length of the scratch array
+   */
+  static int scratchLength(connectkParameters parameters) {
+    return (parameters.getWinLength() + 3) * words(parameters);
+  }
+
+  /**
+   * Finds all cells where a disc of the player would complete a line of winLength,
+   * see the overload without scratch space. Allocates on every call, searches should keep
+   * the board mask and the scratch array and use the other overload.
+   * @param bits the bitboard of both players, player 1 first
+   * @param player the player, 1 or 2
+   * @param parameters the board parameters
+   * @param result array of at least words(parameters) longs, the winning cells are set
+   * @return true if there is at least one winning cell
+   */
+  static boolean winningCells(long[] bits, int player, connectkParameters parameters,
+      long[] result) {
+    return winningCells(bits, player, parameters, boardMask(parameters),
+        new long[scratchLength(parameters)], result);
+  }
+
+  /**
+   * Finds all cells where a disc of the player would complete a line of winLength,
+   * for every cell and direction at once: a cell wins if it has a chain of a discs on one
+   * side and winLength - 1 - a on the other. The chains are found by and-ing the board with
+   * itself shifted by 1, 2, ... steps. Only cells a disc can be placed on are returned,
+   * with gravity the cell a disc dropped into the column lands on.
+   * @param bits the bitboard of both players, player 1 first
+   * @param player the player, 1 or 2
+   * @param parameters the board parameters
+   * @param board the board mask, see boardMask
+   * @param scratch array of at least scratchLength(parameters) longs, overwritten
+   * @param result array of at least words(parameters) longs, the winning cells are set
+   * @return true if there is at least one winning cell
+   */
+  static boolean winningCells(long[] bits, int player, connectkParameters parameters,
+      long[] board, long[] scratch, long[] result) {
+    assert (player == 1 || player == 2);
+    assert (scratch.length >= scratchLength(parameters));
+
+    int words = words(parameters);
+    int height = height(parameters);
+    int length = parameters.getWinLength() - 1;
+
+    if (words == 1) {
+      // Small boards fit into one long, the chains are computed in registers.
+      long own = bits[player - 1];
+      long cells = length == 0 ? -1L : 0;
+      for (int direction = 0; direction < 4; direction++) {
+        int step = step(direction, height);
+        for (int a = 0; a <= length && length > 0; a++) {
+          long line = -1L;
+          for (int i = 1; i <= a && line != 0; i++) {
+            line &= i * step < 64 ? own << (i * step) : 0;
+          }
+          for (int i = 1; i <= length - a && line != 0; i++) {
+            line &= i * step < 64 ? own >>> (i * step) : 0;
+          }
+          cells |= line;
+        }
+      }
+      long occupied = bits[0] | bits[1];
+      long playable = board[0] & ~occupied;
+      if (parameters.isGravity()) {
+        playable &= (occupied | ~board[0]) >>> 1;
+      }
+      result[0] = cells & playable;
+      return result[0] != 0;
+    }
+
+    // Scratch layout: the discs of the player, before, shifted, then after[0..length],
+    // after[b] (at (3 + b) * words) marks the cells with b discs right above them,
+    // before the cells with a discs right below them.
+    int before = words;
+    int shifted = 2 * words;
+    System.arraycopy(bits, (player - 1) * words, scratch, 0, words);
+
+    Arrays.fill(result, 0, words, length == 0 ? -1L : 0);
+    for (int direction = 0; direction < 4 && length > 0; direction++) {
+      int step = step(direction, height);
+      Arrays.fill(scratch, 3 * words, 4 * words, -1L);
+      for (int b = 1; b <= length; b++) {
+        shiftRight(scratch, 0, words, b * step, scratch, shifted);
+        int after = (3 + b) * words;
+        for (int i = 0; i < words; i++) {
+          scratch[after + i] = scratch[after - words + i] & scratch[shifted + i];
+        }
+      }
+      Arrays.fill(scratch, before, before + words, -1L);
+      for (int a = 0; a <= length; a++) {
+        if (a > 0) {
+          shiftLeft(scratch, 0, words, a * step, scratch, shifted);
+          for (int i = 0; i < words; i++) {
+            scratch[before + i] &= scratch[shifted + i];
+          }
+        }
+        int after = (3 + length - a) * words;
+        for (int i = 0; i < words; i++) {
+          result[i] |= scratch[before + i] & scratch[after + i];
+        }
+      }
+    }
+
+    // Keep the empty cells, with gravity only the cell right above the discs of a column.
+    // The sentinel bits act as the floor below the bottom row, the floors go into before.
+    for (int i = 0; i < words; i++) {
+      scratch[before + i] = bits[i] | bits[words + i] | ~board[i];
+    }
+    if (parameters.isGravity()) {
+      shiftRight(scratch, before, words, 1, scratch, shifted);
+    }
+    boolean any = false;
+    for (int i = 0; i < words; i++) {
+      long playable = board[i] & ~(bits[i] | bits[words + i]);
+      if (parameters.isGravity()) {
+        playable &= scratch[shifted + i];
+      }
+      result[i] &= playable;
+      any |= result[i] != 0;
+    }
+    return any;
+  }
+
+  // Bit distance of neighbouring cells in a direction: vertical, horizontal and diagonals.
+  private static int step(int direction, int height) {
+    switch (direction) {
+      case 0:
+        return 1;
+      case 1:
+        return height;
+      case 2:
+        return height - 1;
+      default:
+        return height + 1;
+    }
+  }
+
+  // Sets the bits [from, from + count).
+  private static void setRange(long[] bits, int from, int count) {
+    int to = from + count;
+    while (from < to) {
+      int bit = from & 63;
+      int length = Math.min(64 - bit, to - from);
+      bits[from >>> 6] |= (length == 64 ? -1L : (1L << length) - 1) << bit;
+      from += length;
+    }
+  }
+
+  // Multi word logical left shift of the words longs at sourceOffset into the words longs
+  // at targetOffset: bit i + shift of target becomes bit i of source.
+  private static void shiftLeft(long[] source, int sourceOffset, int words, int shift,
+      long[] target, int targetOffset) {
+    int wordShift = shift >>> 6;
+    int bitShift = shift & 63;
+    for (int i = words - 1; i >= 0; i--) {
+      int from = i - wordShift;
+      long high = from >= 0 && from < words ? source[sourceOffset + from] : 0;
+      long low = from - 1 >= 0 && from - 1 < words ? source[sourceOffset + from - 1] : 0;
+      target[targetOffset + i] =
+          bitShift == 0 ? high : (high << bitShift) | (low >>> (64 - bitShift));
+    }
+  }
+
+  // Multi word logical right shift of the words longs at sourceOffset into the words longs
+  // at targetOffset: bit i of target becomes bit i + shift of source.
+  private static void shiftRight(long[] source, int sourceOffset, int words, int shift,
+      long[] target, int targetOffset) {
+    int wordShift = shift >>> 6;
+    int bitShift = shift & 63;
+    for (int i = 0; i < words; i++) {
+      int from = i + wordShift;
+      long low = from < words ? source[sourceOffset + from] : 0;
+      long high = from + 1 < words ? source[sourceOffset + from + 1] : 0;
+      target[targetOffset + i] =
+          bitShift == 0 ? low : (low >>> bitShift) | (high << (64 - bitShift));
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A node of a Monte Carlo search tree shared by several threads.
+ *
+ * <p>Like MonteCarloNode, but visits and wins are updated with atomic operations and
+ * children are claimed with an atomic counter, so threads never block each other
+ * while walking the tree. Only computing the valid moves of a node is synchronized,
+ * which happens once per node.
+ */
+class ConcurrentMonteCarloNode {
+  private static final AtomicIntegerFieldUpdater<ConcurrentMonteCarloNode> VISITS =
+      AtomicIntegerFieldUpdater.newUpdater(ConcurrentMonteCarloNode.class, "visits");
+  private static final AtomicIntegerFieldUpdater<ConcurrentMonteCarloNode> WINS =
+      AtomicIntegerFieldUpdater.newUpdater(ConcurrentMonteCarloNode.class, "wins");
+  private static final AtomicIntegerFieldUpdater<ConcurrentMonteCarloNode> CLAIMED =
+      AtomicIntegerFieldUpdater.newUpdater(ConcurrentMonteCarloNode.class, "claimed");
+
+  private final int move;
+  private volatile int visits = 0;
+  private volatile int wins = 0;
+  private volatile int claimed = 0;   // number of child slots handed out, may exceed moves.length
+  private volatile int[] moves;       // in random order, children[i] is reached by moves[i]
+  private volatile AtomicReferenceArray<ConcurrentMonteCarloNode> children;
+
+  /**
+   * Constructor
+   * @param move The packed move leading to this node, see SearchState.packMove
+   */
+  public ConcurrentMonteCarloNode(int move) {
+    this.move = move;
+  }
+
+  /**
+   * Getter for the move leading to this node.
+   * @return the packed move
+   */
+  public int getMove() {
+    return move;
+  }
+
+  /**
+   * Getter for the number of simulations through this node, including virtual losses
+   * of simulations still running.
+   * @return the number of visits
+   */
+  public int getVisits() {
+    return visits;
+  }
+
+  /**
+   * Getter for the number of simulations through this node won by the player who made the move.
+   * @return the number of wins
+   */
+  public int getWins() {
+    return wins;
+  }
+
+  /**
+   * Computes the valid moves of the position of this node in random order,
+   * unless another thread has already done so.
+   * @param state The position of this node
+   * @param buffer Scratch array of at least rows * columns moves
+   * @param random Random number generator of the calling thread
+   */
+  public void expand(SearchState state, int[] buffer, SplittableRandom random) {
+    if (moves != null) {
+      return;
+    }
+    synchronized (this) {
+      if (moves == null) {
+        int count = state.getValidMoves(buffer);
+        int[] shuffled = Arrays.copyOf(buffer, count);
+        for (int i = count - 1; i > 0; i--) {
+          int j = random.nextInt(i + 1);
+          int temp = shuffled[i];
+          shuffled[i] = shuffled[j];
+          shuffled[j] = temp;
+        }
+        children = new AtomicReferenceArray<>(count);
+        moves = shuffled;
+      }
+    }
+  }
+
+  /**
+   * Claims and creates the next child without a node, if there is one.
+   * @return the new child or null if all children have been claimed
+   */
+  public ConcurrentMonteCarloNode addChild() {
+    assert (moves != null);
+
+    if (claimed >= moves.length) {
+      return null;
+    }
+    int index = CLAIMED.getAndIncrement(this);
+    if (index >= moves.length) {
+      return null;
+    }
+    ConcurrentMonteCarloNode child = new ConcurrentMonteCarloNode(moves[index]);
+    children.set(index, child);
+    return child;
+  }
+
+  /**
+   * Number of child slots, i.e. valid moves.
+   * @return the number of valid moves, 0 before expand
+   */
+  public int getChildSlots() {
+    int[] current = moves;
+    return current == null ? 0 : current.length;
+  }
+
+  /**
+   * Getter for a child.
+   * @param index index of the child, less than getChildSlots
+   * @return the child or null if it has not been created (yet)
+   */
+  public ConcurrentMonteCarloNode getChild(int index) {
+    return children.get(index);
+  }
+
+  /**
+   * Adds a virtual loss: the visits are counted before the result is known, so other
+   * threads see this node as worse and prefer other paths.
+   * @param virtualLoss number of visits to add
+   */
+  public void addVirtualLoss(int virtualLoss) {
+    VISITS.addAndGet(this, virtualLoss);
+  }
+
+  /**
+   * Records the result of a simulation through this node and takes back its virtual loss.
+   * @param won true if the player who made the move leading to this node won
+   * @param virtualLoss the virtual loss added for this simulation
+   */
+  public void recordResult(boolean won, int virtualLoss) {
+    VISITS.addAndGet(this, 1 - virtualLoss);
+    if (won) {
+      WINS.incrementAndGet(this);
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package game;
+
+/**
+ * Solves positions exactly: negamax with alpha-beta pruning on a SearchState,
+ * searched to the end of the game with a transposition table.
+ *
+ * <p>Only the outcome is searched for, so every value is 1 (the player to move wins),
+ * 0 (draw) or -1 (the player to move loses) and the window is never wider than [-1, 1].
+ * A player who can win right away wins, and a player facing two immediate wins of the
+ * opponent loses, without searching further. Facing one, the only move searched is the block.
+ * Other moves are searched with the best move from the table first, then from the center
+ * outwards. The results are exact, so the table stays valid between solves of the same board.
+ */
+class EndgameSolver {
+  /** Result of solve if the position could not be solved within the limits. */
+  public static final int UNKNOWN = Integer.MIN_VALUE;
+
+  private int tableBits;
+  private TranspositionTable table;
+  private connectkParameters parameters;
+  private int[] ranks;        // see AlphaBetaPlayer.computeRanks
+  private int[][] moves;      // moves[ply], the moves searched at ply in search order
+  private long nodes;
+  private long nodeLimit;
+  private long stopTime;
+  private boolean aborted;
+  private int bestMove = -1;
+
+  /**
+   * Constructor
+   * @param tableBits The transposition table has 2^tableBits entries of 16 bytes
+   */
+  public EndgameSolver(int tableBits) {
+    assert (0 < tableBits && tableBits <= 30);
+
+    this.tableBits = tableBits;
+  }
+
+  /**
+   * Solves a position.
+   * @param state the position, not done, restored on return
+   * @param nodeLimit maximum number of positions searched, 0 for no limit
+   * @param stopTime System.nanoTime at which the search gives up, 0 for no limit
+   * @return 1 if the player to move wins, 0 for a draw, -1 if the player to move loses,
+   *     UNKNOWN if a limit was reached or the thread interrupted first
+   */
+  public int solve(SearchState state, long nodeLimit, long stopTime) {
+    assert (state != null);
+    assert (!state.isDone());
+    assert (nodeLimit >= 0);
+
+    if (table == null) {
+      table = new TranspositionTable(tableBits);
+    }
+    connectkParameters board = state.getconnectkParameters();
+    if (parameters == null || parameters.getRows() != board.getRows()
+        || parameters.getColumns() != board.getColumns()
+        || parameters.getWinLength() != board.getWinLength()
+        || parameters.isGravity() != board.isGravity()) {
+      ranks = AlphaBetaPlayer.computeRanks(board);
+      moves = new int[board.getRows() * board.getColumns() + 1][];
+      table.clear();
+    }
+    parameters = board;
+    this.nodeLimit = nodeLimit;
+    this.stopTime = stopTime;
+    nodes = 0;
+    aborted = false;
+
+    long key = state.getKey();
+    int count = generateMoves(state, 0, table.get(key));
+    int[] rootMoves = moves[0];
+    int alpha = -1;
+    int best = rootMoves[0];
+    for (int i = 0; i < count && alpha < 1; i++) {
+      state.makeMove(rootMoves[i]);
+      int value = -search(state, 1, -1, -alpha);
+      state.unmakeMove();
+      if (aborted) {
+        bestMove = -1;
+        return UNKNOWN;
+      }
+      if (value > alpha) {
+        alpha = value;
+        best = rootMoves[i];
+      }
+    }
+    bestMove = best;
+    table.put(key, alpha, depthOf(state), TranspositionTable.EXACT, best);
+    return alpha;
+  }
+
+  /**
+   * The best move of the last solved position: a winning move of a won position,
+   * a drawing move of a drawn one.
+   * @return the packed move, -1 if the last position was not solved
+   */
+  public int getBestMove() {
+    return bestMove;
+  }
+
+  /**
+   * Number of positions searched by the last solve.
+   * @return the number of nodes
+   */
+  public long getNodes() {
+    return nodes;
+  }
+
+  // Negamax with alpha-beta, the value for the player to move.
+  private int search(SearchState state, int ply, int alpha, int beta) {
+    if (state.isDone()) {
+      // The player who just moved won.
+      return state.getWinner() == 0 ? 0 : -1;
+    }
+    nodes++;
+    if ((nodes & 0x3ff) == 0 && ((nodeLimit > 0 && nodes >= nodeLimit)
+        || (stopTime != 0 && stopTime <= System.nanoTime())
+        || Thread.currentThread().isInterrupted())) {
+      aborted = true;
+    }
+    if (aborted) {
+      return 0;
+    }
+    int player = state.getCurrentPlayer();
+    if (state.findWinningMove(player) >= 0) {
+      return 1;
+    }
+
+    long key = state.getKey();
+    long entry = table.get(key);
+    if (entry != 0) {
+      int value = TranspositionTable.getValue(entry);
+      int bound = TranspositionTable.getBound(entry);
+      if (bound == TranspositionTable.EXACT
+          || (bound == TranspositionTable.LOWER && value >= beta)
+          || (bound == TranspositionTable.UPPER && value <= alpha)) {
+        return value;
+      }
+    }
+
+    if (moves[ply] == null) {
+      moves[ply] = new int[parameters.getRows() * parameters.getColumns()];
+    }
+    int count = state.getWinningMoves(3 - player, moves[ply]);
+    if (count >= 2) {
+      return -1;  // only one of them can be blocked
+    } else if (count == 0) {
+      count = generateMoves(state, ply, entry);
+    }
+    int[] plyMoves = moves[ply];
+    int originalAlpha = alpha;
+    int best = -1;
+    int bestMove = plyMoves[0];
+    for (int i = 0; i < count; i++) {
+      state.makeMove(plyMoves[i]);
+      int value = -search(state, ply + 1, -beta, -alpha);
+      state.unmakeMove();
+      if (aborted) {
+        return 0;
+      }
+      if (value > best) {
+        best = value;
+        bestMove = plyMoves[i];
+      }
+      if (value > alpha) {
+        alpha = value;
+        if (alpha >= beta) {
+          break;
+        }
+      }
+    }
+
+    int bound = best <= originalAlpha ? TranspositionTable.UPPER
+        : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+    table.put(key, best, depthOf(state), bound, bestMove);
+    return best;
+  }
+
+  // Writes the valid moves into moves[ply], see AlphaBetaPlayer.orderMoves.
+  // Returns the number of moves.
+  private int generateMoves(SearchState state, int ply, long entry) {
+    if (moves[ply] == null) {
+      moves[ply] = new int[parameters.getRows() * parameters.getColumns()];
+    }
+    return AlphaBetaPlayer.orderMoves(state, moves[ply], entry, ranks);
+  }
+
+  // Depth of a table entry: the number of empty cells, more empty cells took more work.
+  private int depthOf(SearchState state) {
+    return Math.min(parameters.getRows() * parameters.getColumns() - state.getMarks(), 0xff);
+  }
+}
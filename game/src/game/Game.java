@@ -33,6 +33,24 @@ public class Game {
     return state;
   }
 
+  /**
+     * Getter for the first player.
+     *
+     * @return the player moving first, not null
+     */
+  public Player getPlayerOne() {
+    return playerOne;
+  }
+
+  /**
+     * Getter for the second player.
+     *
+     * @return the player moving second, not null
+     */
+  public Player getPlayerTwo() {
+    return playerTwo;
+  }
+
   /**
      * Update the game for one turn:
      * 1) get move from current player
@@ -1,8 +1,26 @@
 package game;
 
+/**
+ * A cell of the board a disc is placed on.
+ *
+ * <p>Moves are immutable, so getInstance hands out shared instances for all cells of the
+ * largest board instead of allocating a new object per call. Only cells off that board
+ * get a new instance. Search code uses moves packed into an int, see pack.
+ */
 class GameMove {
-  private int row;
-  private int column;
+  private static final GameMove[] MOVES =
+      new GameMove[connectkParameters.ROWS_MAX * connectkParameters.COLUMNS_MAX];
+
+  static {
+    for (int row = 0; row < connectkParameters.ROWS_MAX; row++) {
+      for (int column = 0; column < connectkParameters.COLUMNS_MAX; column++) {
+        MOVES[row * connectkParameters.COLUMNS_MAX + column] = new GameMove(row, column);
+      }
+    }
+  }
+
+  private final int row;
+  private final int column;
 
   /**
      * Get instance of GameMove.
@@ -11,9 +29,54 @@ class GameMove {
      * @param column  the column
      */
   public static GameMove getInstance(int row, int column) {
+    if (0 <= row && row < connectkParameters.ROWS_MAX
+        && 0 <= column && column < connectkParameters.COLUMNS_MAX) {
+      return MOVES[row * connectkParameters.COLUMNS_MAX + column];
+    }
     return new GameMove(row, column);
   }
 
+  /**
+   * Get instance of GameMove from a packed move.
+   * @param move the packed move, see pack
+   * @return the move
+   */
+  public static GameMove getInstance(int move) {
+    return getInstance(unpackRow(move), unpackColumn(move));
+  }
+
+  /**
+   * Packs a cell of the board into an int, row in the high and column in the low byte.
+   * Packed moves of the same cell are equal, so they can be compared with ==.
+   * @param row the row, 0 to 255
+   * @param column the column, 0 to 255
+   * @return the packed move
+   */
+  public static int pack(int row, int column) {
+    assert (0 <= row && row <= 0xff);
+    assert (0 <= column && column <= 0xff);
+
+    return row << 8 | column;
+  }
+
+  /**
+   * Row of a packed move.
+   * @param move the packed move
+   * @return the row
+   */
+  public static int unpackRow(int move) {
+    return move >>> 8;
+  }
+
+  /**
+   * Column of a packed move.
+   * @param move the packed move
+   * @return the column
+   */
+  public static int unpackColumn(int move) {
+    return move & 0xff;
+  }
+
   /**
    * Constructor
    * @param row the row
@@ -42,6 +105,14 @@ class GameMove {
     return column;
   }
 
+  /**
+   * The move packed into an int.
+   * @return pack(getRow(), getColumn())
+   */
+  public int pack() {
+    return pack(row, column);
+  }
+
   @Override
   public String toString() {
     return "GameMove{" + "row=" + row + ", column=" + column + '}';
@@ -1,5 +1,7 @@
 package game;
 
+import java.util.Arrays;
+
 class Heuristic {
 
   /**
@@ -33,21 +35,22 @@ class Heuristic {
     assert (state != null);
 
     int[] playerLines = {0, 0, 0};
+    int[] playerCount = new int[3];
 
     for (GameMove move : state) {
-      int[] playerCount = countPlayersInLine(state, move, 1, 0);
+      countPlayersInLine(state, move, 1, 0, playerCount);
       int owner = lineOwner(playerCount);
       playerLines[owner]++;
 
-      playerCount = countPlayersInLine(state, move, 0, 1);
+      countPlayersInLine(state, move, 0, 1, playerCount);
       owner = lineOwner(playerCount);
       playerLines[owner]++;
 
-      playerCount = countPlayersInLine(state, move, -1, 1);
+      countPlayersInLine(state, move, -1, 1, playerCount);
       owner = lineOwner(playerCount);
       playerLines[owner]++;
 
-      playerCount = countPlayersInLine(state, move, 1, 1);
+      countPlayersInLine(state, move, 1, 1, playerCount);
       owner = lineOwner(playerCount);
       playerLines[owner]++;
     }
@@ -82,22 +85,26 @@ class Heuristic {
    * @param move the move
    * @param rowDirection left or right
    * @param columnDirection up or down
-   * @return Integer Array containing how many number of pieces ear player has in line.
+   * @param playerCount Array of 3 the counts are written to, reused for every line
+   * @return playerCount containing how many number of pieces ear player has in line.
    */
   private int[] countPlayersInLine(State state, GameMove move, 
-      int rowDirection, int columnDirection) {
+      int rowDirection, int columnDirection, int[] playerCount) {
     assert (state != null);
     assert (move != null);
     assert (state.isOnBoard(move));
     assert (-1 <= rowDirection && rowDirection <= 1);
     assert (-1 <= columnDirection && columnDirection <= 1);
 
-    int winLength = state.getconnectkParameters().getWinLength();
-    int[] playerCount = {0, 0, 0};
+    connectkParameters parameters = state.getconnectkParameters();
+    int winLength = parameters.getWinLength();
+    Arrays.fill(playerCount, 0);
 
-    GameMove endGameMove = GameMove.getInstance(move.getRow() + rowDirection * (winLength - 1),
-                move.getColumn() + columnDirection * (winLength - 1));
-    if (state.isOnBoard(endGameMove)) {
+    // The end of the line is checked without a GameMove, it may be off the board.
+    int endRow = move.getRow() + rowDirection * (winLength - 1);
+    int endColumn = move.getColumn() + columnDirection * (winLength - 1);
+    if (0 <= endRow && endRow < parameters.getRows()
+        && 0 <= endColumn && endColumn < parameters.getColumns()) {
       for (int i = 0; i < winLength; i++) {
         GameMove possibleMove = GameMove.getInstance(move.getRow()
             + rowDirection * i, move.getColumn() + columnDirection * i);
@@ -0,0 +1,186 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * Computes the same value as Heuristic.evaluate, but keeps the counts up to date
+ * while moves are made and taken back instead of scanning the board.
+ *
+ * <p>Every window of winLength cells in one of the four directions has a count of discs
+ * per player. A window is open for a player if only that player has discs in it,
+ * and the value of a position is the number of open windows of player 1 minus those
+ * of player 2. Attach an instance to a SearchState with SearchState.setHeuristic,
+ * then a move only updates the windows through its cell.
+ */
+class IncrementalHeuristic {
+  private connectkParameters parameters;
+  private int[][] windows;   // windows[bit index] lists the windows containing the cell
+  private int[][] counts;    // counts[player][window], the discs of the player in the window
+  private int[] lines = {0, 0, 0};   // open windows of each player, index 0 is unused
+
+  /**
+   * Constructor, creates the windows of an empty board.
+   * @param parameters Parameters of the boards the heuristic is used for
+   */
+  public IncrementalHeuristic(connectkParameters parameters) {
+    assert (parameters != null);
+
+    this.parameters = parameters;
+    int rows = parameters.getRows();
+    int columns = parameters.getColumns();
+    int winLength = parameters.getWinLength();
+    int[][] directions = {{1, 0}, {0, 1}, {-1, 1}, {1, 1}};
+
+    // Same windows as Heuristic.winningLines: from every cell in every direction,
+    // if the window ends on the board.
+    int[] sizes = new int[Bitboard.size(parameters)];
+    int[][] starts = new int[4 * rows * columns][];
+    int count = 0;
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        for (int[] direction : directions) {
+          int endRow = row + direction[0] * (winLength - 1);
+          int endColumn = column + direction[1] * (winLength - 1);
+          if (0 <= endRow && endRow < rows && endColumn < columns) {
+            starts[count++] = new int[] {row, column, direction[0], direction[1]};
+            for (int i = 0; i < winLength; i++) {
+              sizes[Bitboard.index(parameters, row + direction[0] * i,
+                  column + direction[1] * i)]++;
+            }
+          }
+        }
+      }
+    }
+
+    windows = new int[sizes.length][];
+    for (int index = 0; index < sizes.length; index++) {
+      windows[index] = new int[sizes[index]];
+      sizes[index] = 0;
+    }
+    for (int window = 0; window < count; window++) {
+      int[] start = starts[window];
+      for (int i = 0; i < winLength; i++) {
+        int index = Bitboard.index(parameters, start[0] + start[2] * i, start[1] + start[3] * i);
+        windows[index][sizes[index]++] = window;
+      }
+    }
+    counts = new int[3][count];
+  }
+
+  /**
+   * Getter for the parameters of the boards.
+   * @return the parameters given to the constructor
+   */
+  public connectkParameters getconnectkParameters() {
+    return parameters;
+  }
+
+  /**
+   * Recomputes the counts from a position, e.g. after SearchState.load.
+   * @param state the position
+   */
+  public void reset(SearchState state) {
+    assert (state != null);
+
+    Arrays.fill(counts[1], 0);
+    Arrays.fill(counts[2], 0);
+    lines[1] = 0;
+    lines[2] = 0;
+    for (int row = 0; row < parameters.getRows(); row++) {
+      for (int column = 0; column < parameters.getColumns(); column++) {
+        int player = state.getPlayerAt(row, column);
+        if (player != 0) {
+          add(Bitboard.index(parameters, row, column), player);
+        }
+      }
+    }
+  }
+
+  /**
+   * Counts a disc placed on the board.
+   * @param index bit index of the cell, see Bitboard.index
+   * @param player the player of the disc
+   */
+  public void add(int index, int player) {
+    int[] own = counts[player];
+    int[] other = counts[3 - player];
+    for (int window : windows[index]) {
+      if (own[window]++ == 0) {
+        if (other[window] == 0) {
+          lines[player]++;        // empty window opens for player
+        } else {
+          lines[3 - player]--;    // window of the opponent is blocked
+        }
+      }
+    }
+  }
+
+  /**
+   * Takes back a disc counted with add.
+   * @param index bit index of the cell, see Bitboard.index
+   * @param player the player of the disc
+   */
+  public void remove(int index, int player) {
+    int[] own = counts[player];
+    int[] other = counts[3 - player];
+    for (int window : windows[index]) {
+      if (--own[window] == 0) {
+        if (other[window] == 0) {
+          lines[player]--;
+        } else {
+          lines[3 - player]++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Change of the open windows of a player if the player placed a disc on an empty cell:
+   * the windows through the cell without a disc of the player, which are either opened
+   * for the player or blocked for the opponent. The counts are not changed.
+   * @param index bit index of the cell, see Bitboard.index
+   * @param player the player
+   * @return the gain, between 0 and 4 * winLength
+   */
+  public int getGain(int index, int player) {
+    int[] own = counts[player];
+    int gain = 0;
+    for (int window : windows[index]) {
+      if (own[window] == 0) {
+        gain++;
+      }
+    }
+    return gain;
+  }
+
+  /**
+   * Number of windows only the given player has discs in.
+   * @param player 1 or 2
+   * @return the number of open windows
+   */
+  public int getOpenLines(int player) {
+    assert (player == 1 || player == 2);
+
+    return lines[player];
+  }
+
+  /**
+   * Evaluates the position the counts were kept for, the same as Heuristic.evaluate.
+   * @param state the position, with this heuristic attached or reset to it
+   * @return the heuristic value of state
+   */
+  public double evaluate(SearchState state) {
+    assert (state != null);
+
+    if (!state.isDone()) {
+      return lines[1] - lines[2];
+    }
+    if (state.getWinner() == 1) {
+      return Double.POSITIVE_INFINITY;
+    } else if (state.getWinner() == 2) {
+      return Double.NEGATIVE_INFINITY;
+    } else {  // Draw
+      return 0;
+    }
+  }
+}
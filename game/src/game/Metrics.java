@@ -0,0 +1,291 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Registry of the counters and histograms of the engine, e.g. simulations per move,
+ * playout lengths and time per phase of MonteCarloAlgorithmPlayer and calls of
+ * State.applyGameMove.
+ *
+ * <p>Metrics are off by default. Instrumented code checks isEnabled before it measures
+ * anything, so turned off they cost a field read. Counters and histograms are
+ * thread-safe. The values can be dumped with toJson or read over JMX,
+ * see registerMBean.
+ */
+final class Metrics {
+  /** Name of the MBean registered by registerMBean. */
+  public static final String OBJECT_NAME = "game:type=Metrics";
+
+  private static volatile boolean enabled = false;
+  private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+  private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+  private Metrics() {
+  }
+
+  /**
+   * Turns the metrics on or off, recorded values are kept.
+   * @param enabled true to record metrics
+   */
+  public static void setEnabled(boolean enabled) {
+    Metrics.enabled = enabled;
+  }
+
+  /**
+   * Checks if metrics are recorded.
+   * @return true if they are
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets or creates a counter.
+   * @param name name of the counter, e.g. "state.applyGameMove"
+   * @return the counter, the same for the same name
+   */
+  public static Counter counter(String name) {
+    assert (name != null);
+
+    return counters.computeIfAbsent(name, key -> new Counter());
+  }
+
+  /**
+   * Gets or creates a histogram.
+   * @param name name of the histogram, e.g. "mcts.playoutLength"
+   * @return the histogram, the same for the same name
+   */
+  public static Histogram histogram(String name) {
+    assert (name != null);
+
+    return histograms.computeIfAbsent(name, key -> new Histogram());
+  }
+
+  /**
+   * Sets all counters and histograms back to zero.
+   */
+  public static void reset() {
+    counters.values().forEach(Counter::reset);
+    histograms.values().forEach(Histogram::reset);
+  }
+
+  /**
+   * Dumps all metrics, sorted by name, e.g.
+   * {"counters": {"state.applyGameMove": 42}, "histograms": {"mcts.playoutLength":
+   * {"count": 2, "sum": 30, "mean": 15.0, "max": 17, "p50": 15, "p90": 17, "p99": 17}}}.
+   * Percentiles are upper bounds of power of two buckets, at most the maximum.
+   * @return the metrics as a JSON object
+   */
+  public static String toJson() {
+    StringBuilder builder = new StringBuilder("{\"counters\": {");
+    String separator = "";
+    for (Map.Entry<String, Counter> entry : new TreeMap<>(counters).entrySet()) {
+      builder.append(separator).append('"').append(entry.getKey()).append("\": ")
+          .append(entry.getValue().get());
+      separator = ", ";
+    }
+    builder.append("}, \"histograms\": {");
+    separator = "";
+    for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+      builder.append(separator).append('"').append(entry.getKey()).append("\": ")
+          .append(entry.getValue().toJson());
+      separator = ", ";
+    }
+    return builder.append("}}").toString();
+  }
+
+  /**
+   * Bytes allocated by the current thread so far, for allocation per simulation.
+   * @return the bytes, or -1 if the JVM cannot tell
+   */
+  public static long getAllocatedBytes() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean)
+          .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server as game:type=Metrics,
+   * e.g. for JConsole. Registering twice has no effect.
+   * @throws IllegalStateException if the MBean cannot be registered
+   */
+  public static synchronized void registerMBean() {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(OBJECT_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(new StandardMBean(new Bean(), MetricsMXBean.class, true), name);
+      }
+    } catch (JMException error) {
+      throw new IllegalStateException("Metrics::registerMBean: cannot register.", error);
+    }
+  }
+
+  /**
+   * A counter, e.g. of calls or nanoseconds.
+   */
+  static final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Adds to the counter.
+     * @param amount the amount, e.g. nanoseconds
+     */
+    public void add(long amount) {
+      value.add(amount);
+    }
+
+    /**
+     * Adds 1 to the counter.
+     */
+    public void increment() {
+      value.increment();
+    }
+
+    /**
+     * Current value of the counter.
+     * @return the sum of everything added since the last reset
+     */
+    public long get() {
+      return value.sum();
+    }
+
+    private void reset() {
+      value.reset();
+    }
+  }
+
+  /**
+   * Distribution of non-negative values in power of two buckets:
+   * bucket b counts the values v with 2^(b-1) <= v < 2^b, bucket 0 the zeros.
+   */
+  static final class Histogram {
+    private final LongAdder[] buckets = new LongAdder[Long.SIZE];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    private Histogram() {
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new LongAdder();
+      }
+    }
+
+    /**
+     * Records a value.
+     * @param value the value, negative values count as 0
+     */
+    public void record(long value) {
+      value = Math.max(value, 0);
+      buckets[Long.SIZE - Long.numberOfLeadingZeros(value)].increment();
+      sum.add(value);
+      max.accumulate(value);
+    }
+
+    /**
+     * Number of recorded values.
+     * @return the count since the last reset
+     */
+    public long getCount() {
+      long count = 0;
+      for (LongAdder bucket : buckets) {
+        count += bucket.sum();
+      }
+      return count;
+    }
+
+    /**
+     * Sum of the recorded values.
+     * @return the sum since the last reset
+     */
+    public long getSum() {
+      return sum.sum();
+    }
+
+    /**
+     * Largest recorded value.
+     * @return the maximum, 0 if nothing was recorded
+     */
+    public long getMax() {
+      return max.get();
+    }
+
+    /**
+     * Upper bound of a percentile: the end of the bucket it falls into.
+     * @param percentile between 0 and 100
+     * @return 2^b - 1 for the bucket b of the percentile, 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+      assert (0 <= percentile && percentile <= 100);
+
+      long count = getCount();
+      long rank = (long) Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int b = 0; b < buckets.length; b++) {
+        seen += buckets[b].sum();
+        if (seen >= rank && seen > 0) {
+          return b == 0 ? 0 : Math.min((1L << b) - 1, getMax());
+        }
+      }
+      return 0;
+    }
+
+    private String toJson() {
+      long count = getCount();
+      return "{\"count\": " + count + ", \"sum\": " + getSum()
+          + ", \"mean\": " + (count == 0 ? 0 : (double) getSum() / count)
+          + ", \"max\": " + getMax() + ", \"p50\": " + getPercentile(50)
+          + ", \"p90\": " + getPercentile(90) + ", \"p99\": " + getPercentile(99) + "}";
+    }
+
+    private void reset() {
+      for (LongAdder bucket : buckets) {
+        bucket.reset();
+      }
+      sum.reset();
+      max.reset();
+    }
+  }
+
+  // The JMX view of the registry.
+  private static final class Bean implements MetricsMXBean {
+    @Override
+    public boolean isEnabled() {
+      return Metrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+      Metrics.setEnabled(enabled);
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+      Map<String, Long> values = new TreeMap<>();
+      counters.forEach((name, counter) -> values.put(name, counter.get()));
+      return values;
+    }
+
+    @Override
+    public String getJson() {
+      return toJson();
+    }
+
+    @Override
+    public void reset() {
+      Metrics.reset();
+    }
+  }
+}
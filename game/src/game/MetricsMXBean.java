@@ -0,0 +1,38 @@
+package game;
+
+import java.util.Map;
+
+/**
+ * JMX interface of Metrics, registered by Metrics.registerMBean.
+ */
+public interface MetricsMXBean {
+
+  /**
+   * Checks if metrics are recorded.
+   * @return true if they are
+   */
+  boolean isEnabled();
+
+  /**
+   * Turns the metrics on or off.
+   * @param enabled true to record metrics
+   */
+  void setEnabled(boolean enabled);
+
+  /**
+   * Current values of all counters.
+   * @return the values by name
+   */
+  Map<String, Long> getCounters();
+
+  /**
+   * All counters and histograms, see Metrics.toJson.
+   * @return the metrics as a JSON object
+   */
+  String getJson();
+
+  /**
+   * Sets all counters and histograms back to zero.
+   */
+  void reset();
+}
@@ -5,6 +5,10 @@ package game;
 
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import game.GameMove;
 import game.MonteCarloAlgorithmPlayer;
@@ -13,11 +17,66 @@ import game.State;
 
 
 class MonteCarloAlgorithmPlayer implements Player {
+  private static final int DEFAULT_SOLVER_THRESHOLD = 16;
+  private static final long SOLVER_NODE_LIMIT = 2000000;
+  private static final int SOLVER_TABLE_BITS = 18;   // 4 MB
+  private static final int PRIOR_VISITS = 100;       // most visits taken from the store per node
+  private static final int STORE_VISITS = 32;        // fewest new visits written to the store
+  private static final long PONDER_NODE_LIMIT = 1000000;  // most nodes added while pondering
+  private static final int BEST_MOVE_INTERVAL = 256;  // iterations between best move updates
+  private static final int TOP_MOVES = 5;             // root moves in a progress snapshot
+
+  private static final Metrics.Counter MOVES = Metrics.counter("mcts.moves");
+  private static final Metrics.Histogram ITERATIONS = Metrics.histogram("mcts.iterations");
+  private static final Metrics.Histogram TREE_NODES = Metrics.histogram("mcts.treeNodes");
+  private static final Metrics.Histogram PLAYOUT_LENGTH =
+      Metrics.histogram("mcts.playoutLength");
+  private static final Metrics.Histogram BYTES_PER_ITERATION =
+      Metrics.histogram("mcts.bytesPerIteration");
+  private static final Metrics.Counter SELECTION_NANOS = Metrics.counter("mcts.selectionNanos");
+  private static final Metrics.Counter ROLLOUT_NANOS = Metrics.counter("mcts.rolloutNanos");
+  private static final Metrics.Counter BACKPROPAGATION_NANOS =
+      Metrics.counter("mcts.backpropagationNanos");
+  private static final Metrics.Counter EVICTIONS = Metrics.counter("mcts.evictions");
+
   private int id;
-  private Random random;
+  private SplittableRandom random;
   private GameMove chosenGameMove;
-  private Map<State, Double> wins = new HashMap<>();
-  private Map<State, Double> plays = new HashMap<>();
+  private MonteCarloNode root;
+  private State rootState;        // position of root
+  private int nodeCount = 0;      // number of nodes in the tree of root
+  private int evictedTo = 0;      // nodeCount after the last eviction
+  private int[] leafVisits;       // scratch array of evictLeaves
+  private long nodesCreated = 0;  // number of nodes added by the current search
+  private MonteCarloNode[] path;  // nodes visited by the current simulation
+  private int[] moves;            // scratch array for SearchState.getValidMoves
+  private boolean treeReuse = false;
+  private int nodeBudget = 0;
+  private int budgetShare = 0;    // share of the iteration and node limits, see SearchBudget
+  private int budgetShares = 1;
+  private int leafBatch = 1;
+  private BatchRollout batchRollout;  // used when leafBatch > 1
+  private int[] results = new int[3];  // rollouts won by each player, 0 for draws
+  private boolean guidedRollouts = false;
+  private double progressiveBias = 0;
+  private IncrementalHeuristic heuristic;  // counts of the node of the current simulation
+  private boolean symmetric = false;
+  private Symmetry symmetry;      // symmetries of the board if symmetric, otherwise null
+  private int solverThreshold = DEFAULT_SOLVER_THRESHOLD;
+  private EndgameSolver solver;
+  private OpeningBook openingBook;
+  private StatisticsStore statisticsStore;
+  private String message;
+  private boolean pondering = false;
+  private ExecutorService ponderExecutor;  // created by the first ponder search
+  private Future<?> ponderSearch;          // running ponder search, null if none
+  private volatile boolean ponderStopped;
+  private volatile SearchBudget budget;     // budget of the current or last search
+  private volatile int bestMoveSoFar = -1;  // packed move, -1 if none yet
+  private ProgressListener progressListener;
+  private long progressInterval;  // nanoseconds between snapshots
+  private int maxDepth;           // deepest node reached by the current search
+  private boolean metrics;        // Metrics.isEnabled at the start of the current search
 
   /**
      * Get an instance of a MonteCarloAlgorithmPlayer
@@ -28,7 +87,21 @@ class MonteCarloAlgorithmPlayer implements Player {
   public static Player getInstance(int id) {
     assert (id == 1 || id == 2);
 
-    return new MonteCarloAlgorithmPlayer(id, new Random());
+    return new MonteCarloAlgorithmPlayer(id, new SplittableRandom());
+  }
+
+  /**
+     * Get an instance of a MonteCarloAlgorithmPlayer with a seeded random number generator.
+     * With an iteration limit, players with the same seed choose the same moves.
+     *
+     * @param id  the id of the player, 1 or 2
+     * @param seed  the seed
+     * @return a MonteCarloAlgorithmPlayer object, not null
+     */
+  public static Player getInstance(int id, long seed) {
+    assert (id == 1 || id == 2);
+
+    return new MonteCarloAlgorithmPlayer(id, new SplittableRandom(seed));
   }
 
   
@@ -37,7 +110,7 @@ class MonteCarloAlgorithmPlayer implements Player {
    * @param id Player ID
    * @param random Random number generator
    */
-  protected MonteCarloAlgorithmPlayer(int id, Random random) {
+  protected MonteCarloAlgorithmPlayer(int id, SplittableRandom random) {
     assert (id == 1 || id == 2);
     assert (random != null);
 
@@ -45,6 +118,175 @@ class MonteCarloAlgorithmPlayer implements Player {
     this.random = random;
   }
 
+  /**
+   * Keeps the part of the tree below the current position between calls of calculateMove,
+   * instead of starting every search with a new tree.
+   * @param treeReuse true to reuse the tree
+   */
+  public void setTreeReuse(boolean treeReuse) {
+    this.treeReuse = treeReuse;
+  }
+
+  /**
+   * Limits the size of the tree, the least visited leaves are evicted when it is exceeded.
+   * The children of the root are never evicted, so a tree can stay above a budget smaller
+   * than the number of moves.
+   * @param nodeBudget maximum number of nodes, 0 for no limit
+   */
+  public void setNodeBudget(int nodeBudget) {
+    assert (nodeBudget >= 0);
+
+    this.nodeBudget = nodeBudget;
+  }
+
+  /**
+   * Searches with a share of the iteration and node limits of connectkParameters,
+   * for one of several players that together keep the limits, see SearchBudget.
+   * @param share index of the share, 0 to shares - 1
+   * @param shares number of players sharing the limits
+   */
+  void setBudgetShare(int share, int shares) {
+    assert (0 <= share && share < shares);
+
+    this.budgetShare = share;
+    this.budgetShares = shares;
+  }
+
+  /**
+   * Runs several random rollouts in parallel on the common ForkJoinPool from every new
+   * leaf and records their results in one step. This makes each walk through the tree
+   * count for more on big boards, where rollouts are long.
+   * @param leafBatch rollouts per new leaf, 1 for a single rollout on the search thread
+   */
+  public void setLeafBatch(int leafBatch) {
+    assert (leafBatch >= 1);
+
+    this.leafBatch = leafBatch;
+    batchRollout = null;
+  }
+
+  /**
+   * Lets rollouts take an immediate win and block an immediate win of the opponent,
+   * and only play random moves otherwise.
+   * @param guidedRollouts true for guided rollouts, false for uniformly random ones
+   */
+  public void setGuidedRollouts(boolean guidedRollouts) {
+    this.guidedRollouts = guidedRollouts;
+  }
+
+  /**
+   * Adds a progressive bias to the UCB score of a move: the share of the lines through
+   * its cell the move opens or blocks (see IncrementalHeuristic.getGain), times the weight,
+   * divided by the visits of the move plus one. The bias guides the search while a node
+   * has few visits and fades out as the simulation results take over.
+   * @param weight weight of the bias, 0 to turn it off
+   */
+  public void setProgressiveBias(double weight) {
+    assert (weight >= 0);
+
+    this.progressiveBias = weight;
+  }
+
+  /**
+   * Expands only one of every set of moves that lead to symmetric positions, e.g. only
+   * the left half of the columns of an empty board with gravity. The statistics of
+   * symmetric positions are shared, which makes the tree much smaller early in the game.
+   * With tree reuse, a subtree is also reused if the position is the mirror image
+   * of the one searched, its moves are mapped back to the real board.
+   * @param symmetric true to merge symmetric positions
+   */
+  public void setSymmetric(boolean symmetric) {
+    this.symmetric = symmetric;
+  }
+
+  /**
+   * Solves positions with at most the given number of empty cells exactly with
+   * EndgameSolver instead of searching them. The solver may use up to half the time limit
+   * and gives up after 2000000 positions, then the tree search runs for the rest of it.
+   * @param solverThreshold maximum number of empty cells, 0 to never use the solver
+   */
+  public void setSolverThreshold(int solverThreshold) {
+    assert (solverThreshold >= 0);
+
+    this.solverThreshold = solverThreshold;
+  }
+
+  /**
+   * Plays the moves of an opening book without searching, for positions in the book.
+   * @param openingBook the book, used for boards it matches, null for none
+   */
+  public void setOpeningBook(OpeningBook openingBook) {
+    this.openingBook = openingBook;
+  }
+
+  /**
+   * Starts new nodes with the results of earlier searches from a store and adds the results
+   * of every search to it, so they are kept across games and restarts. A new node takes
+   * at most 100 visits from the store, with the same win rate. After every search the nodes
+   * with at least 32 new visits are added and the store is flushed in the background.
+   * @param statisticsStore the store for the board of the games, null for none
+   */
+  public void setStatisticsStore(StatisticsStore statisticsStore) {
+    this.statisticsStore = statisticsStore;
+  }
+
+  /**
+   * Keeps searching on the opponent's time: after every move the search continues
+   * in a background thread from the position after the move, until the next call of
+   * calculateMove, which reuses the subtree of the opponent's reply and searches on.
+   * Pondering adds at most 1000000 nodes and implies tree reuse. Call stopPondering
+   * when the game ends.
+   * @param pondering true to search during the opponent's turn
+   */
+  public void setPondering(boolean pondering) {
+    this.pondering = pondering;
+    if (!pondering) {
+      stopPondering();
+    }
+  }
+
+  /**
+   * Reports the progress of every tree search to a listener, on the search thread:
+   * a snapshot about every intervalMillis and one when the search is done. The clock
+   * is read every 256 simulations, so without a listener the search is not slowed down.
+   * The last snapshot of a search is also the message of the player.
+   * @param progressListener the listener, null for none
+   * @param intervalMillis milliseconds between snapshots
+   */
+  public void setProgressListener(ProgressListener progressListener, long intervalMillis) {
+    assert (intervalMillis >= 0);
+
+    this.progressListener = progressListener;
+    this.progressInterval = intervalMillis * 1000000;
+  }
+
+  /**
+   * Stops the ponder search, if one is running, and waits for it to finish.
+   */
+  public void stopPondering() {
+    if (ponderSearch == null) {
+      return;
+    }
+    ponderStopped = true;
+    Future<?> search = ponderSearch;
+    ponderSearch = null;
+    boolean interrupted = false;
+    while (true) {
+      try {
+        search.get();
+        break;
+      } catch (InterruptedException error) {
+        interrupted = true;
+      } catch (ExecutionException error) {
+        throw new IllegalStateException("MonteCarloAlgorithmPlayer::stopPondering: "
+            + "search failed.", error.getCause());
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   /**
    * Getter for ID
    */
@@ -55,40 +297,219 @@ class MonteCarloAlgorithmPlayer implements Player {
 
   /**
    * Chooses the best game move after running MCTS simulation for specified length of time.
+   * Positions of the opening book are not searched, see setOpeningBook,
+   * and positions with few empty cells are solved exactly, see setSolverThreshold.
+   * A running ponder search is stopped first, see setPondering. The search stops early,
+   * with the best move so far, when it is cancelled or the thread is interrupted.
    * @param state Current state
    */
   @Override
   public void calculateMove(State state) {
     assert (state != null);
     assert (!state.isDone());
-    //int count = 0;           //uncomment to check number of iterations
 
-    // Run simulations while time remains.
-    long stopTime = System.nanoTime() + state.getconnectkParameters().getTimeLimit() * 1000000;
-    while (stopTime > System.nanoTime()) {
-      runSimulation(state, true);
-      //count++;              //uncomment to check number of iterations
+    stopPondering();
+
+    connectkParameters parameters = state.getconnectkParameters();
+    budget = new SearchBudget(parameters, budgetShare, budgetShares);
+    metrics = Metrics.isEnabled();
+    bestMoveSoFar = -1;
+    SearchState searchState = state.toSearchState();
+    message = null;
+    if (openingBook != null && openingBook.matches(parameters)) {
+      int move = openingBook.findMove(searchState);
+      if (move >= 0) {
+        chosenGameMove = GameMove.getInstance(move);
+        bestMoveSoFar = move;
+        message = "opening book";
+        return;
+      }
+    }
+    if (solve(searchState)) {
+      return;
+    }
+    moves = new int[parameters.getRows() * parameters.getColumns()];
+    path = new MonteCarloNode[moves.length + 1];
+    if (leafBatch > 1 && (batchRollout == null
+        || batchRollout.getconnectkParameters() != parameters)) {
+      batchRollout = new BatchRollout(parameters, leafBatch, random, ForkJoinPool.commonPool());
+    }
+    if (batchRollout != null) {
+      batchRollout.setGuided(guidedRollouts);
+    }
+    if (!symmetric) {
+      symmetry = null;
+    } else if (symmetry == null || symmetry.getconnectkParameters() != parameters) {
+      symmetry = Symmetry.getInstance(parameters);
+    }
+    MonteCarloNode reused = treeReuse || pondering ? findNode(state) : null;
+    if (reused != null) {
+      root = reused;
+      nodeCount = root.size();
+      evictedTo = 0;
+    } else {
+      root = new MonteCarloNode(-1);
+      nodeCount = 1;
+      evictedTo = 0;
+    }
+    rootState = state;
+    if (progressiveBias > 0) {
+      if (heuristic == null || heuristic.getconnectkParameters().getRows() != parameters.getRows()
+          || heuristic.getconnectkParameters().getColumns() != parameters.getColumns()
+          || heuristic.getconnectkParameters().getWinLength() != parameters.getWinLength()) {
+        heuristic = new IncrementalHeuristic(parameters);
+      }
+      heuristic.reset(searchState);
+    }
+
+    // Run simulations until the time, iteration or node limit is reached or the search
+    // is cancelled, at least one so the root has a child.
+    long startTime = System.nanoTime();
+    long startBytes = metrics ? Metrics.getAllocatedBytes() : 0;
+    long nextProgress = startTime + progressInterval;
+    long iterations = 0;
+    nodesCreated = 0;
+    maxDepth = 0;
+    while ((iterations == 0 || !budget.isExhausted(iterations, nodesCreated))
+        && root.getProven() == 0) {
+      runSimulation(searchState);
+      iterations++;
+      evictIfOverBudget();
+      if (iterations % BEST_MOVE_INTERVAL == 0) {
+        bestMoveSoFar = selectBestChild().getMove();
+        if (progressListener != null && System.nanoTime() >= nextProgress) {
+          progressListener.onProgress(getProgress(startTime, iterations, false));
+          nextProgress = System.nanoTime() + progressInterval;
+        }
+      }
+    }
+    if (metrics) {
+      MOVES.increment();
+      ITERATIONS.record(iterations);
+      TREE_NODES.record(nodeCount);
+      if (startBytes >= 0 && iterations > 0) {
+        BYTES_PER_ITERATION.record((Metrics.getAllocatedBytes() - startBytes) / iterations);
+      }
+    }
+    SearchProgress progress = getProgress(startTime, iterations, true);
+    message = progress.toString();
+    if (progressListener != null) {
+      progressListener.onProgress(progress);
+    }
+
+    if (statisticsStore != null) {
+      storeResults(root, searchState);
+      statisticsStore.flush();
     }
 
-    // Choose move with highest relative win rate based on simulations.
+    MonteCarloNode bestChild = selectBestChild();
+
+    assert (bestChild != null);
+
+    int move = bestChild.getMove();
+    chosenGameMove = GameMove.getInstance(move);
+    bestMoveSoFar = move;
+    if (pondering) {
+      startPondering(state, bestChild);
+    }
+  }
+
+  // Choose move with highest relative win rate based on simulations,
+  // proven wins before all others and proven losses after them.
+  private MonteCarloNode selectBestChild() {
     double bestScore = Double.NEGATIVE_INFINITY;
-    GameMove bestGameMove = null;
-    for (GameMove move : state.getValidGameMoves()) {
-      State nextState = state.applyGameMove(move);
-      if (plays.containsKey(nextState)) {
-        double score = wins.get(nextState) / plays.get(nextState);
-        if (score > bestScore) {
-          bestScore = score;
-          bestGameMove = move;
+    MonteCarloNode bestChild = null;
+    for (int i = 0; i < root.getChildCount(); i++) {
+      MonteCarloNode child = root.getChild(i);
+      double score = child.getWins() / child.getVisits() + 2 * child.getProven();
+      if (score > bestScore) {
+        bestScore = score;
+        bestChild = child;
+      }
+    }
+    return bestChild;
+  }
+
+  // Takes a snapshot of the search: the most visited moves of the root and the
+  // principal variation, following the most visited child down the tree.
+  private SearchProgress getProgress(long startTime, long iterations, boolean done) {
+    List<MonteCarloNode> children = new ArrayList<>();
+    for (int i = 0; i < root.getChildCount(); i++) {
+      children.add(root.getChild(i));
+    }
+    children.sort((first, second) -> Integer.compare(second.getVisits(), first.getVisits()));
+    List<SearchProgress.MoveStatistics> topMoves = new ArrayList<>();
+    for (MonteCarloNode child : children.subList(0, Math.min(TOP_MOVES, children.size()))) {
+      topMoves.add(new SearchProgress.MoveStatistics(GameMove.getInstance(child.getMove()),
+          child.getVisits(), child.getWins() / child.getVisits()));
+    }
+
+    List<GameMove> principalVariation = new ArrayList<>();
+    MonteCarloNode node = root;
+    while (node.getChildCount() > 0) {
+      MonteCarloNode mostVisited = node.getChild(0);
+      for (int i = 1; i < node.getChildCount(); i++) {
+        if (node.getChild(i).getVisits() > mostVisited.getVisits()) {
+          mostVisited = node.getChild(i);
         }
       }
+      principalVariation.add(GameMove.getInstance(mostVisited.getMove()));
+      node = mostVisited;
     }
+    return new SearchProgress((System.nanoTime() - startTime) / 1000000, iterations, nodeCount,
+        maxDepth, topMoves, principalVariation, done);
+  }
 
-    chosenGameMove = bestGameMove;
-    //System.out.println("Number of iterations: "+ count);       
-    //uncomment ^ to check number of iterations
+  // Makes the subtree of the chosen move the root and searches it in the background
+  // until stopPondering is called or the node limit is reached.
+  private void startPondering(State state, MonteCarloNode child) {
+    State next = state.applyGameMove(chosenGameMove);
+    if (next.isDone() || child.getProven() != 0) {
+      return;
+    }
+    root = child;
+    rootState = next;
+    nodeCount = root.size();
+    evictedTo = 0;
+    SearchState searchState = next.toSearchState();
+    if (progressiveBias > 0) {
+      heuristic.reset(searchState);
+    }
+    if (ponderExecutor == null) {
+      ponderExecutor = ThreadPools.newDaemonPool("MonteCarloAlgorithmPlayer-ponder-" + id, 1);
+    }
+    ponderStopped = false;
+    ponderSearch = ponderExecutor.submit(() -> {
+      nodesCreated = 0;
+      while (!ponderStopped && nodesCreated < PONDER_NODE_LIMIT && root.getProven() == 0) {
+        runSimulation(searchState);
+        evictIfOverBudget();
+      }
+    });
+  }
 
-    assert (chosenGameMove != null);
+  // Solves the position if it has few enough empty cells and chooses the best move.
+  // Returns false if the solver is not used or gave up.
+  private boolean solve(SearchState state) {
+    connectkParameters parameters = state.getconnectkParameters();
+    int empty = parameters.getRows() * parameters.getColumns() - state.getMarks();
+    if (empty > solverThreshold) {
+      return false;
+    }
+    if (solver == null) {
+      solver = new EndgameSolver(SOLVER_TABLE_BITS);
+    }
+    long stopTime = parameters.hasTimeLimit()
+        ? System.nanoTime() + parameters.getTimeLimit() * 1000000 / 2 : 0;
+    int result = solver.solve(state, SOLVER_NODE_LIMIT, stopTime);
+    if (result == EndgameSolver.UNKNOWN) {
+      return false;
+    }
+    chosenGameMove = GameMove.getInstance(solver.getBestMove());
+    bestMoveSoFar = solver.getBestMove();
+    message = "solved, " + (result > 0 ? "win" : result < 0 ? "loss" : "draw") + ", "
+        + solver.getNodes() + " nodes";
+    return true;
   }
 
   /**
@@ -101,109 +522,413 @@ class MonteCarloAlgorithmPlayer implements Player {
     return chosenGameMove;
   }
 
+  /**
+   * Stops the tree search at the next simulation, it chooses the best move so far.
+   */
+  @Override
+  public void cancel() {
+    SearchBudget current = budget;
+    if (current != null) {
+      current.cancel();
+    }
+  }
+
+  /**
+   * The move with the highest win rate at the root, updated every 256 simulations.
+   */
+  @Override
+  public GameMove getBestMoveSoFar() {
+    int move = bestMoveSoFar;
+    return move < 0 ? null : GameMove.getInstance(move);
+  }
+
+  /**
+   * Getter for the root of the last search, used to merge the results of several searches.
+   * @return the root node, null before the first search
+   */
+  MonteCarloNode getRoot() {
+    return root;
+  }
+
+  /**
+   * Getter for the number of nodes in the tree of the last search.
+   * @return the number of nodes below and including the root
+   */
+  int getNodeCount() {
+    return nodeCount;
+  }
+
   @Override
   public String toString() {
-    return "Monte Carlo Tree Search";
+    return pondering ? "Monte Carlo Tree Search (pondering)" : "Monte Carlo Tree Search";
   }
 
  
   /**
-   * Runs a single simulation
-   * @param state The current state
-   * @param record If node visited before, sets this boolean to true
-   * @return Returns the best game move for the simulation
+   * Runs a single simulation: walks down the tree, adds the first unseen child on the path,
+   * finishes the game with a random rollout and records the result on the path.
+   * The walk stops at proven nodes, their result is recorded without a rollout,
+   * and proofs are passed up: a node is lost if a child is won and won if all are lost.
+   * @param state The position of the root, restored when the simulation is done
    */
-  private int runSimulation(State state, boolean record) {
+  private void runSimulation(SearchState state) {
     assert (state != null);
 
-    // Add entry for first unseen child on path.
-    if (record && !plays.containsKey(state)) {
-      plays.put(state, 0.0);
-      wins.put(state, 0.0);
-      record = false;
+    // Walk down while all children of a node have been tried, then add an unseen child.
+    long selectionTime = metrics ? System.nanoTime() : 0;
+    MonteCarloNode node = root;
+    int length = 0;
+    path[length++] = node;
+    while (!state.isDone() && node.getProven() == 0) {
+      if (!node.isExpanded()) {
+        node.expand(state, moves, symmetry);
+      }
+      if (node.hasUnexploredChild()) {
+        node = node.addRandomChild(random);
+        nodeCount++;
+        nodesCreated++;
+        if (progressiveBias > 0) {
+          int index = Bitboard.index(state.getconnectkParameters(),
+              SearchState.getRow(node.getMove()), SearchState.getColumn(node.getMove()));
+          node.setBias((double) heuristic.getGain(index, state.getCurrentPlayer())
+              / (4 * state.getconnectkParameters().getWinLength()));
+        }
+        makeTreeMove(state, node);
+        if (statisticsStore != null) {
+          int priorVisits = statisticsStore.getVisits(state.getKey());
+          if (priorVisits > 0) {
+            int visits = Math.min(priorVisits, PRIOR_VISITS);
+            double wins = statisticsStore.getWins(state.getKey()) * visits / priorVisits;
+            node.addPrior(visits, Math.max(0, Math.min(wins, visits)));
+          }
+        }
+        path[length++] = node;
+        break;
+      }
+      node = calculateBestChild(node);
+      makeTreeMove(state, node);
+      path[length++] = node;
     }
 
-    // Recursively continue simulation and record results.
-    int winner;
-    if (!state.isDone()) {
-      List<GameMove> moves = state.getValidGameMoves();
-      GameMove bestGameMove = calculateBestGameMove(state, moves);
-      winner = runSimulation(state.applyGameMove(bestGameMove), record);
+    maxDepth = Math.max(maxDepth, length - 1);
+    long rolloutTime = metrics ? System.nanoTime() : 0;
+    Arrays.fill(results, 0);
+    if (length > 1 && state.isDone() && state.getWinner() != 0) {
+      node.setProven(MonteCarloNode.WIN);
+    }
+    if (length > 1 && node.getProven() != 0) {
+      int mover = 3 - state.getCurrentPlayer();
+      results[node.getProven() == MonteCarloNode.WIN ? mover : 3 - mover]++;
+    } else if (leafBatch > 1) {
+      batchRollout.run(state, results);
     } else {
-      winner = state.getWinner();
+      results[runRollout(state)]++;
     }
-    recordResult(state, winner);
-    return winner;
+    int simulations = results[0] + results[1] + results[2];
+    long backpropagationTime = metrics ? System.nanoTime() : 0;
+
+    // Record the results on the path and take the moves back.
+    for (int i = length - 1; i >= 0; i--) {
+      int lastPlayer = (state.getCurrentPlayer() == 1) ? 2 : 1;
+      path[i].recordResults(simulations, results[lastPlayer]);
+      if (i > 0 && path[i].getProven() == MonteCarloNode.WIN) {
+        path[i - 1].setProven(MonteCarloNode.LOSS);
+      } else if (i > 0 && path[i].getProven() == MonteCarloNode.LOSS
+          && path[i - 1].isAllChildrenLost()) {
+        path[i - 1].setProven(MonteCarloNode.WIN);
+      }
+      if (i > 0) {
+        state.unmakeMove();
+        if (progressiveBias > 0) {
+          int move = path[i].getMove();
+          heuristic.remove(Bitboard.index(state.getconnectkParameters(), SearchState.getRow(move),
+              SearchState.getColumn(move)), lastPlayer);
+        }
+      }
+    }
+    if (metrics) {
+      SELECTION_NANOS.add(rolloutTime - selectionTime);
+      ROLLOUT_NANOS.add(backpropagationTime - rolloutTime);
+      BACKPROPAGATION_NANOS.add(System.nanoTime() - backpropagationTime);
+    }
+  }
+
+  // Adds the new results of the children of node with enough visits to the statistics store,
+  // and the results below them. The state is the position of node and restored on return.
+  private void storeResults(MonteCarloNode node, SearchState state) {
+    for (int i = 0; i < node.getChildCount(); i++) {
+      MonteCarloNode child = node.getChild(i);
+      if (child.getVisits() >= STORE_VISITS) {
+        state.makeMove(child.getMove());
+        if (child.getUnstoredVisits() >= STORE_VISITS) {
+          statisticsStore.add(state.getKey(), child.getUnstoredVisits(),
+              Math.max(0, Math.min(child.getUnstoredWins(), child.getUnstoredVisits())));
+          child.markStored();
+        }
+        storeResults(child, state);
+        state.unmakeMove();
+      }
+    }
+  }
+
+  // Makes the move of a node of the tree and keeps the heuristic of the progressive bias
+  // up to date, rollouts do not need it.
+  private void makeTreeMove(SearchState state, MonteCarloNode node) {
+    if (progressiveBias > 0) {
+      int move = node.getMove();
+      heuristic.add(Bitboard.index(state.getconnectkParameters(), SearchState.getRow(move),
+          SearchState.getColumn(move)), state.getCurrentPlayer());
+    }
+    state.makeMove(node.getMove());
   }
 
-  // Calculate best move for simulations.
-  private GameMove calculateBestGameMove(State state, List<GameMove> moves) {
+  /**
+   * Looks for the given position in the tree of the last search, at most two moves
+   * (our move and the reply, or only the reply after pondering) below the old root.
+   * With symmetric, a node of a mirror image of the position is found as well
+   * and its subtree mapped onto the position.
+   * @param state The current position
+   * @return the node of the position or null if it is not in the tree
+   */
+  private MonteCarloNode findNode(State state) {
     assert (state != null);
-    assert (moves != null);
-    assert (!moves.isEmpty());
 
-    // If there are any previously untaken moves, return one at random.
-    List<GameMove> unexplored = new ArrayList<>();
-    for (GameMove move : moves) {
-      if (!plays.containsKey(state.applyGameMove(move))) {
-        unexplored.add(move);
-      }
+    if (root == null || rootState.getconnectkParameters() != state.getconnectkParameters()) {
+      return null;
     }
-    if (!unexplored.isEmpty()) {
-      return unexplored.get(random.nextInt(unexplored.size()));
+    if (rootState.equals(state)) {
+      return root;
+    }
+    // Keys of the images of the position, a node with one of them is a mirror image.
+    SearchState target = state.toSearchState();
+    long[] keys = new long[symmetry == null ? 0 : symmetry.getCount()];
+    for (int s = 0; s < keys.length; s++) {
+      keys[s] = symmetry.getKey(target, s);
+    }
+    SearchState searchState = rootState.toSearchState();
+    for (int i = 0; i < root.getChildCount(); i++) {
+      MonteCarloNode child = root.getChild(i);
+      searchState.makeMove(child.getMove());
+      if (isPosition(child, searchState, target, keys)) {
+        return child;
+      }
+      for (int j = 0; j < child.getChildCount(); j++) {
+        MonteCarloNode grandchild = child.getChild(j);
+        searchState.makeMove(grandchild.getMove());
+        if (isPosition(grandchild, searchState, target, keys)) {
+          return grandchild;
+        }
+        searchState.unmakeMove();
+      }
+      searchState.unmakeMove();
     }
+    return null;
+  }
 
-    // If all moves have been previously taken, return the best move based on UCB.
-    double numberOfPlays = 0.0;
-    for (GameMove move : moves) {
-      numberOfPlays += plays.get(state.applyGameMove(move));
+  // Checks if the position of node is the target or, with the given image keys of the target,
+  // one of its mirror images. The subtree of a mirror image is mapped onto the target.
+  private boolean isPosition(MonteCarloNode node, SearchState state, SearchState target,
+      long[] keys) {
+    if (state.getKey() == target.getKey() && state.toState().equals(target.toState())) {
+      return true;
     }
-    GameMove bestGameMove = null;
-    double bestScore = Double.NEGATIVE_INFINITY;
-    for (GameMove move : moves) {
-      double score = calculateScore(state.applyGameMove(move), numberOfPlays);
-      if (score > bestScore) {
-        bestScore = score;
-        bestGameMove = move;
+    for (long key : keys) {
+      if (state.getKey() == key) {
+        int s = symmetry.findSymmetry(state, target);
+        if (s >= 0) {
+          node.remap(symmetry, s);
+          return true;
+        }
       }
     }
+    return false;
+  }
 
-    assert (bestGameMove != null);
+  // Evicts leaves when the tree is over the node budget. Normally eviction frees a quarter
+  // of the budget. A pass that frees less, because only children of the root are left,
+  // is not repeated until as many new nodes have been added.
+  private void evictIfOverBudget() {
+    if (nodeBudget > 0 && nodeCount > nodeBudget && nodeCount - evictedTo > nodeBudget / 4) {
+      evictLeaves();
+      evictedTo = nodeCount;
+      if (metrics) {
+        EVICTIONS.increment();
+      }
+    }
+  }
+
+  /**
+   * Shrinks the tree to three quarters of the node budget by removing the least visited leaves.
+   */
+  private void evictLeaves() {
+    if (leafVisits == null || leafVisits.length < nodeCount) {
+      leafVisits = new int[Math.max(nodeCount, nodeBudget + 1)];
+    }
+    int[] visits = leafVisits;
+    int leaves = collectLeafVisits(root, visits, 0);
+    Arrays.sort(visits, 0, leaves);
+    int excess = Math.min(nodeCount - nodeBudget * 3 / 4, leaves);
+    if (excess <= 0) {
+      return;
+    }
+    // Remove all leaves below the threshold and as many at the threshold as needed.
+    int threshold = visits[excess - 1];
+    int atThreshold = 0;
+    for (int i = excess - 1; i >= 0 && visits[i] == threshold; i--) {
+      atThreshold++;
+    }
+    nodeCount -= removeLeaves(root, threshold, new int[] {atThreshold});
+  }
 
-    return bestGameMove;
+  // Writes the visits of all leaves below node into visits, starting at count.
+  // Children of the root are never evicted, they are needed to choose the move.
+  private int collectLeafVisits(MonteCarloNode node, int[] visits, int count) {
+    for (int i = 0; i < node.getChildCount(); i++) {
+      MonteCarloNode child = node.getChild(i);
+      if (child.getChildCount() == 0) {
+        if (node != root) {
+          visits[count++] = child.getVisits();
+        }
+      } else {
+        count = collectLeafVisits(child, visits, count);
+      }
+    }
+    return count;
   }
 
+  // Removes the leaves below node with fewer visits than threshold and atThreshold[0]
+  // leaves with exactly threshold visits. Returns the number of removed nodes.
+  private int removeLeaves(MonteCarloNode node, int threshold, int[] atThreshold) {
+    int removed = 0;
+    for (int i = node.getChildCount() - 1; i >= 0; i--) {
+      MonteCarloNode child = node.getChild(i);
+      if (child.getChildCount() > 0) {
+        removed += removeLeaves(child, threshold, atThreshold);
+      } else if (node != root && (child.getVisits() < threshold
+          || (child.getVisits() == threshold && atThreshold[0]-- > 0))) {
+        node.removeChild(i);
+        removed++;
+      }
+    }
+    return removed;
+  }
 
   /**
-   * Calculate the score of a move based on the UCB formula.
-   * @param state Current state
-   * @param numberOfPlays
-   * @return Reward received
+   * Plays random moves until the game is done and takes them back again.
+   * Guided rollouts take immediate wins and block immediate losses first.
+   * @param state The state to start from
+   * @return Returns the winner of the rollout
    */
-  private double calculateScore(State state, double numberOfPlays) {
+  private int runRollout(SearchState state) {
     assert (state != null);
 
-    double balance = 2;
-    return wins.get(state) / plays.get(state) + balance 
-        * Math.sqrt(Math.log(numberOfPlays) / plays.get(state));
+    int depth = playRollout(state, random, guidedRollouts);
+    if (metrics) {
+      PLAYOUT_LENGTH.record(depth);
+    }
+    int winner = state.getWinner();
+    for (int i = 0; i < depth; i++) {
+      state.unmakeMove();
+    }
+    return winner;
   }
 
-  // Records the result of a simulation.
-  private void recordResult(State state, int winner) {
-    assert (state != null);
-    assert (winner == 0 || winner == 1 || winner == 2);
+  /**
+   * Plays random moves until the game is done without taking them back.
+   * @param state The state to start from
+   * @param random Random number generator
+   * @param guided true to take immediate wins and block immediate losses first
+   * @return the number of moves made
+   */
+  static int playRollout(SearchState state, SplittableRandom random, boolean guided) {
+    int depth = 0;
+    int own = -1;     // last move of the player to move
+    int other = -1;   // last move of the opponent
+    while (!state.isDone()) {
+      int move = guided ? findForcedMove(state, own, other) : -1;
+      if (move < 0) {
+        move = state.getValidMove(random.nextInt(state.getValidMoveCount()));
+      }
+      state.makeMove(move);
+      own = other;
+      other = move;
+      depth++;
+    }
+    return depth;
+  }
 
-    if (plays.containsKey(state)) {
-      plays.put(state, plays.get(state) + 1);
-      int lastPlayer = (state.getCurrentPlayer() == 1) ? 2 : 1;
-      if (winner == lastPlayer) {
-        wins.put(state, wins.get(state) + 1);
+  /**
+   * Finds a move the current player should not miss: a move that wins,
+   * otherwise a move on a cell where the opponent would win.
+   *
+   * <p>Without gravity, if both players have played guided moves since the start
+   * (own and other are known), every earlier win has been taken and every earlier
+   * threat blocked, so only the lines through those two moves are checked.
+   * @param state The position
+   * @param own The last move of the current player, -1 if it was not guided
+   * @param other The last move of the opponent, -1 if it was not guided
+   * @return the packed move or -1 if there is none
+   */
+  static int findForcedMove(SearchState state, int own, int other) {
+    int player = state.getCurrentPlayer();
+    if (own >= 0 && other >= 0 && !state.getconnectkParameters().isGravity()) {
+      int move = state.findWinningMoveNear(own, player);
+      return move >= 0 ? move : state.findWinningMoveNear(other, 3 - player);
+    }
+    int move = state.findWinningMove(player);
+    return move >= 0 ? move : state.findWinningMove(3 - player);
+  }
+
+  // Calculate best child for simulations based on UCB, all children have been tried.
+  // A proven win is always chosen and proven losses only if there is nothing else.
+  private MonteCarloNode calculateBestChild(MonteCarloNode node) {
+    assert (node != null);
+    assert (!node.hasUnexploredChild());
+    assert (node.getChildCount() > 0);
+
+    double numberOfPlays = node.getVisits();
+    MonteCarloNode bestChild = null;
+    double bestScore = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < node.getChildCount(); i++) {
+      MonteCarloNode child = node.getChild(i);
+      if (child.getProven() == MonteCarloNode.WIN) {
+        return child;
+      }
+      double score = child.getProven() == MonteCarloNode.LOSS ? Double.NEGATIVE_INFINITY
+          : calculateScore(child, numberOfPlays);
+      if (bestChild == null || score > bestScore) {
+        bestScore = score;
+        bestChild = child;
       }
     }
+
+    assert (bestChild != null);
+
+    return bestChild;
+  }
+
+
+  /**
+   * Calculate the score of a move based on the UCB formula.
+   * @param child Node reached by the move
+   * @param numberOfPlays Number of simulations through the parent
+   * @return Reward received
+   */
+  private double calculateScore(MonteCarloNode child, double numberOfPlays) {
+    assert (child != null);
+
+    double balance = 2;
+    return child.getWins() / child.getVisits() + balance 
+        * Math.sqrt(Math.log(numberOfPlays) / child.getVisits())
+        + progressiveBias * child.getBias() / (child.getVisits() + 1);
   }
 
+  /**
+   * Describes the last move: "opening book", the result of the solver or the last
+   * progress snapshot of the tree search, see SearchProgress.toString.
+   */
   @Override
   public String getMessage() {
-    return null;
+    return message;
   }
 }
@@ -0,0 +1,303 @@
+package game;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A node of the Monte Carlo search tree.
+ *
+ * <p>A node does not store its position, it is reached by making the moves on the path
+ * from the root on a SearchState. The children are created one at a time in random order
+ * and children[i] is the node reached by moves[i].
+ *
+ * <p>A node can be proven, as in MCTS-Solver: its position is a certain win or loss for the
+ * player who made the move, see getProven. Proofs start at the end of the game and are
+ * passed up the tree by MonteCarloAlgorithmPlayer.
+ */
+class MonteCarloNode {
+  /** The player who made the move leading to the node wins with best play. */
+  public static final int WIN = 1;
+  /** The player who made the move leading to the node loses with best play. */
+  public static final int LOSS = -1;
+
+  private int move;
+  private int visits = 0;
+  private double wins = 0;
+  private int[] moves;
+  private MonteCarloNode[] children;
+  private int expanded = 0;
+  private double bias = 0;
+  private int proven = 0;
+  private int storedVisits = 0;     // visits already in the statistics store
+  private double storedWins = 0;
+
+  /**
+   * Constructor
+   * @param move The packed move leading to this node, see SearchState.packMove
+   */
+  public MonteCarloNode(int move) {
+    this.move = move;
+  }
+
+  /**
+   * Getter for the move leading to this node.
+   * @return the packed move
+   */
+  public int getMove() {
+    return move;
+  }
+
+  /**
+   * Getter for the number of simulations through this node.
+   * @return the number of visits
+   */
+  public int getVisits() {
+    return visits;
+  }
+
+  /**
+   * Getter for the number of simulations through this node won by the player who made the move.
+   * @return the number of wins
+   */
+  public double getWins() {
+    return wins;
+  }
+
+  /**
+   * Getter for the heuristic bias of the move leading to this node.
+   * @return the bias, 0 unless set
+   */
+  public double getBias() {
+    return bias;
+  }
+
+  /**
+   * Setter for the heuristic bias of the move leading to this node, see
+   * MonteCarloAlgorithmPlayer.setProgressiveBias.
+   * @param bias the bias
+   */
+  public void setBias(double bias) {
+    this.bias = bias;
+  }
+
+  /**
+   * Getter for the proven result of this node.
+   * @return WIN or LOSS for the player who made the move leading to this node,
+   *     0 if it is not proven
+   */
+  public int getProven() {
+    return proven;
+  }
+
+  /**
+   * Setter for the proven result of this node.
+   * @param proven WIN, LOSS or 0
+   */
+  public void setProven(int proven) {
+    assert (proven == WIN || proven == LOSS || proven == 0);
+
+    this.proven = proven;
+  }
+
+  /**
+   * Checks if every move of this node has a child and all of them are proven losses,
+   * then the node is a proven win.
+   * @return true if all moves lose for the opponent
+   */
+  public boolean isAllChildrenLost() {
+    if (!isExpanded() || hasUnexploredChild()) {
+      return false;
+    }
+    for (int i = 0; i < expanded; i++) {
+      if (children[i].proven != LOSS) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the valid moves of this node are known.
+   * @return true if expand has been called
+   */
+  public boolean isExpanded() {
+    return moves != null;
+  }
+
+  /**
+   * Stores the valid moves of the position of this node.
+   * @param state The position of this node
+   * @param buffer Scratch array of at least rows * columns moves
+   */
+  public void expand(SearchState state, int[] buffer) {
+    expand(state, buffer, null);
+  }
+
+  /**
+   * Stores the valid moves of the position of this node, if the position is symmetric
+   * only one of every set of moves that lead to symmetric positions.
+   * @param state The position of this node
+   * @param buffer Scratch array of at least rows * columns moves
+   * @param symmetry The symmetries of the board, null to keep all moves
+   */
+  public void expand(SearchState state, int[] buffer, Symmetry symmetry) {
+    assert (!isExpanded());
+
+    int count = state.getValidMoves(buffer);
+    if (symmetry != null) {
+      int stabilizer = symmetry.getStabilizer(state);
+      if (stabilizer != 0) {
+        count = symmetry.removeSymmetricMoves(buffer, count, stabilizer);
+      }
+    }
+    moves = Arrays.copyOf(buffer, count);
+    children = new MonteCarloNode[count];
+  }
+
+  /**
+   * Checks if there are moves without a child node.
+   * @return true if not all children have been created
+   */
+  public boolean hasUnexploredChild() {
+    assert (isExpanded());
+
+    return expanded < moves.length;
+  }
+
+  /**
+   * Creates the child of a random move without a child node.
+   * @param random Random number generator
+   * @return the new child
+   */
+  public MonteCarloNode addRandomChild(SplittableRandom random) {
+    assert (hasUnexploredChild());
+
+    int index = expanded + random.nextInt(moves.length - expanded);
+    int temp = moves[index];
+    moves[index] = moves[expanded];
+    moves[expanded] = temp;
+
+    MonteCarloNode child = new MonteCarloNode(temp);
+    children[expanded++] = child;
+    return child;
+  }
+
+  /**
+   * Number of children created so far.
+   * @return the number of children
+   */
+  public int getChildCount() {
+    return expanded;
+  }
+
+  /**
+   * Getter for a child.
+   * @param index index of the child, less than getChildCount
+   * @return the child
+   */
+  public MonteCarloNode getChild(int index) {
+    assert (0 <= index && index < expanded);
+
+    return children[index];
+  }
+
+  /**
+   * Removes a child and its subtree, its move becomes unexplored again.
+   * The last child takes the place of the removed one.
+   * @param index index of the child, less than getChildCount
+   */
+  public void removeChild(int index) {
+    assert (0 <= index && index < expanded);
+
+    int last = expanded - 1;
+    int temp = moves[index];
+    moves[index] = moves[last];
+    moves[last] = temp;
+    children[index] = children[last];
+    children[last] = null;
+    expanded--;
+  }
+
+  /**
+   * Counts the nodes of the subtree rooted at this node.
+   * @return the number of nodes, including this one
+   */
+  public int size() {
+    int size = 1;
+    for (int i = 0; i < expanded; i++) {
+      size += children[i].size();
+    }
+    return size;
+  }
+
+  /**
+   * Maps the moves of the subtree rooted at this node with a symmetry of the board,
+   * so it can be used for the symmetric position.
+   * @param symmetry The symmetries of the board
+   * @param index The symmetry to apply, less than symmetry.getCount
+   */
+  public void remap(Symmetry symmetry, int index) {
+    if (move >= 0) {
+      move = symmetry.mapMove(index, move);
+    }
+    if (isExpanded()) {
+      for (int i = 0; i < moves.length; i++) {
+        moves[i] = symmetry.mapMove(index, moves[i]);
+      }
+    }
+    for (int i = 0; i < expanded; i++) {
+      children[i].remap(symmetry, index);
+    }
+  }
+
+  /**
+   * Starts the statistics of a new node with results from earlier searches,
+   * they count as already stored, see StatisticsStore.
+   * @param priorVisits number of earlier simulations
+   * @param priorWins wins of the player who made the move in them
+   */
+  public void addPrior(int priorVisits, double priorWins) {
+    assert (0 <= priorWins && priorWins <= priorVisits);
+
+    visits += priorVisits;
+    wins += priorWins;
+    storedVisits += priorVisits;
+    storedWins += priorWins;
+  }
+
+  /**
+   * Number of visits not yet written to the statistics store.
+   * @return visits since the last markStored
+   */
+  public int getUnstoredVisits() {
+    return visits - storedVisits;
+  }
+
+  /**
+   * Wins not yet written to the statistics store.
+   * @return wins since the last markStored
+   */
+  public double getUnstoredWins() {
+    return wins - storedWins;
+  }
+
+  /**
+   * Marks all results of this node as written to the statistics store.
+   */
+  public void markStored() {
+    storedVisits = visits;
+    storedWins = wins;
+  }
+
+  /**
+   * Records the results of several simulations through this node at once.
+   * @param simulations number of simulations
+   * @param won number of them won by the player who made the move leading to this node
+   */
+  public void recordResults(int simulations, int won) {
+    assert (0 <= won && won <= simulations);
+
+    visits += simulations;
+    wins += won;
+  }
+}
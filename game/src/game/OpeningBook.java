@@ -0,0 +1,246 @@
+package game;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Best moves of opening positions, read from a file written by OpeningBookGenerator.
+ *
+ * <p>The file is a header of 32 bytes (magic, version, rows, columns, winLength, gravity,
+ * number of entries, unused) followed by the entries of 16 bytes sorted by key: the Zobrist
+ * key of the position, the packed best move, its share of the wins times 65535 and its
+ * number of visits, all big endian. The file is memory-mapped and searched in place,
+ * so loading takes the same time for books of any size.
+ * Mirror images of the positions in the book are found as well, see Symmetry.
+ */
+class OpeningBook {
+  /** First 4 bytes of a book, "CKOB". */
+  public static final int MAGIC = 0x434b4f42;
+  /** Version of the file format. */
+  public static final int VERSION = 1;
+  private static final int HEADER_SIZE = 32;
+  private static final int ENTRY_SIZE = 16;
+
+  private ByteBuffer buffer;
+  private int rows;
+  private int columns;
+  private int winLength;
+  private boolean gravity;
+  private int count;
+  private Symmetry symmetry;
+
+  /**
+   * A position of the book with its best move.
+   */
+  static class Entry {
+    private long key;
+    private int move;
+    private double score;
+    private int visits;
+
+    /**
+     * Constructor
+     * @param key Zobrist key of the position
+     * @param move the packed best move
+     * @param score share of the wins of the move, between 0 and 1
+     * @param visits number of simulations of the move
+     */
+    Entry(long key, int move, double score, int visits) {
+      assert (0 <= score && score <= 1);
+
+      this.key = key;
+      this.move = move;
+      this.score = score;
+      this.visits = visits;
+    }
+
+    /**
+     * Getter for the key.
+     * @return Zobrist key of the position
+     */
+    long getKey() {
+      return key;
+    }
+
+    /**
+     * Getter for the move.
+     * @return the packed best move
+     */
+    int getMove() {
+      return move;
+    }
+
+    /**
+     * Getter for the score.
+     * @return share of the wins of the move, between 0 and 1
+     */
+    double getScore() {
+      return score;
+    }
+
+    /**
+     * Getter for the visits.
+     * @return number of simulations of the move
+     */
+    int getVisits() {
+      return visits;
+    }
+  }
+
+  /**
+   * Constructor
+   * @param buffer The contents of a book file
+   * @throws IllegalArgumentException if it is not a book
+   */
+  protected OpeningBook(ByteBuffer buffer) {
+    assert (buffer != null);
+
+    this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("OpeningBook::OpeningBook: not an opening book.");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("OpeningBook::OpeningBook: unknown version "
+          + buffer.getInt(4) + ".");
+    }
+    rows = buffer.getInt(8);
+    columns = buffer.getInt(12);
+    winLength = buffer.getInt(16);
+    gravity = buffer.getInt(20) != 0;
+    count = buffer.getInt(24);
+    if (count < 0 || (long) HEADER_SIZE + (long) count * ENTRY_SIZE > buffer.capacity()) {
+      throw new IllegalArgumentException("OpeningBook::OpeningBook: truncated book.");
+    }
+  }
+
+  /**
+   * Maps a book file into memory.
+   * @param path the file
+   * @return the book
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if it is not a book
+   */
+  public static OpeningBook load(Path path) throws IOException {
+    assert (path != null);
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new OpeningBook(buffer);
+    }
+  }
+
+  /**
+   * Writes a book file.
+   * @param path the file, overwritten if it exists
+   * @param parameters the board the positions are on
+   * @param entries the positions, with different keys
+   * @throws IOException if the file cannot be written
+   */
+  public static void write(Path path, connectkParameters parameters, Collection<Entry> entries)
+      throws IOException {
+    assert (path != null);
+    assert (parameters != null);
+    assert (entries != null);
+
+    List<Entry> sorted = new ArrayList<>(entries);
+    sorted.sort((first, second) -> Long.compare(first.key, second.key));
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + sorted.size() * ENTRY_SIZE);
+    buffer.putInt(MAGIC).putInt(VERSION).putInt(parameters.getRows())
+        .putInt(parameters.getColumns()).putInt(parameters.getWinLength())
+        .putInt(parameters.isGravity() ? 1 : 0).putInt(sorted.size()).putInt(0);
+    for (Entry entry : sorted) {
+      buffer.putLong(entry.key).putShort((short) entry.move)
+          .putShort((short) Math.round(entry.score * 0xffff)).putInt(entry.visits);
+    }
+    buffer.flip();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    }
+  }
+
+  /**
+   * Checks if the book is for a board.
+   * @param parameters the board parameters
+   * @return true if rows, columns, winLength and gravity are the same
+   */
+  public boolean matches(connectkParameters parameters) {
+    return parameters.getRows() == rows && parameters.getColumns() == columns
+        && parameters.getWinLength() == winLength && parameters.isGravity() == gravity;
+  }
+
+  /**
+   * Number of positions in the book.
+   * @return the number of entries
+   */
+  public int size() {
+    return count;
+  }
+
+  /**
+   * Looks up a position by its key.
+   * @param key Zobrist key of the position
+   * @return the entry, null if the position is not in the book
+   */
+  public Entry get(long key) {
+    int low = 0;
+    int high = count - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int offset = HEADER_SIZE + middle * ENTRY_SIZE;
+      long middleKey = buffer.getLong(offset);
+      if (middleKey < key) {
+        low = middle + 1;
+      } else if (middleKey > key) {
+        high = middle - 1;
+      } else {
+        return new Entry(key, buffer.getShort(offset + 8) & 0xffff,
+            (buffer.getShort(offset + 10) & 0xffff) / (double) 0xffff, buffer.getInt(offset + 12));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the best move of a position or of one of its mirror images,
+   * mapped back onto the position.
+   * @param state the position, on a board the book matches
+   * @return the packed move, -1 if neither the position nor its images are in the book
+   */
+  public int findMove(SearchState state) {
+    assert (state != null);
+    assert (matches(state.getconnectkParameters()));
+
+    Entry entry = get(state.getKey());
+    if (entry != null) {
+      return entry.move;
+    }
+    if (symmetry == null) {
+      symmetry = Symmetry.getInstance(state.getconnectkParameters());
+    }
+    for (int s = 0; s < symmetry.getCount(); s++) {
+      entry = get(symmetry.getKey(state, s));
+      if (entry != null) {
+        // The book has the image of the position, find the move that is mapped onto its move.
+        int[] moves = new int[state.getValidMoveCount()];
+        int moveCount = state.getValidMoves(moves);
+        for (int i = 0; i < moveCount; i++) {
+          if (symmetry.mapMove(s, moves[i]) == entry.move) {
+            return moves[i];
+          }
+        }
+      }
+    }
+    return -1;
+  }
+}
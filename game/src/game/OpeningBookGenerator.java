@@ -0,0 +1,139 @@
+package game;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Offline tool writing an opening book: long searches of the positions of the first plies.
+ *
+ * <p>Usage: java game.OpeningBookGenerator [--option value]... with the options
+ * rows, columns, win, gravity, time, iterations, nodes (limits of the search of every position),
+ * plies (depth of the book), width (moves followed per position), seed and output (the file).
+ * Starting from the empty board, every position is searched with MonteCarloAlgorithmPlayer
+ * and stored with its best move, then the width most visited moves are followed
+ * until plies moves have been made. Mirror images of stored positions are skipped,
+ * OpeningBook finds them.
+ */
+public class OpeningBookGenerator {
+  private connectkParameters parameters;
+  private int plies;
+  private int width;
+  private long seed;
+
+  /**
+   * Constructor
+   * @param parameters The board and the limits of the search of every position
+   * @param plies Positions with fewer discs than plies are stored
+   * @param width Number of moves followed from every position
+   * @param seed Seed of the searches
+   */
+  public OpeningBookGenerator(connectkParameters parameters, int plies, int width, long seed) {
+    assert (parameters != null);
+    assert (plies >= 1);
+    assert (width >= 1);
+
+    this.parameters = parameters;
+    this.plies = plies;
+    this.width = width;
+    this.seed = seed;
+  }
+
+  /**
+   * Writes a book from the command line.
+   * @param args options, see class comment
+   * @throws IOException if the book cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("OpeningBookGenerator::main: expected an option, "
+            + args[i]);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    connectkParameters parameters = new connectkParameters(
+        Integer.parseInt(options.getOrDefault("rows", "6")),
+        Integer.parseInt(options.getOrDefault("columns", "7")),
+        Integer.parseInt(options.getOrDefault("win", "4")),
+        Boolean.parseBoolean(options.getOrDefault("gravity", "true")),
+        Long.parseLong(options.getOrDefault("time", "10000")),
+        Long.parseLong(options.getOrDefault("iterations", "0")),
+        Long.parseLong(options.getOrDefault("nodes", "0")));
+    OpeningBookGenerator generator = new OpeningBookGenerator(parameters,
+        Integer.parseInt(options.getOrDefault("plies", "4")),
+        Integer.parseInt(options.getOrDefault("width", "3")),
+        Long.parseLong(options.getOrDefault("seed", "1")));
+    String output = options.getOrDefault("output", "book.bin");
+    long startTime = System.nanoTime();
+    Collection<OpeningBook.Entry> entries = generator.generate();
+    OpeningBook.write(Paths.get(output), parameters, entries);
+    System.out.printf("%d positions written to %s in %.1f s%n", entries.size(), output,
+        (System.nanoTime() - startTime) / 1e9);
+  }
+
+  /**
+   * Searches the positions of the book.
+   * @return the positions with their best moves
+   */
+  public Collection<OpeningBook.Entry> generate() {
+    SplittableRandom random = new SplittableRandom(seed);
+    Symmetry symmetry = Symmetry.getInstance(parameters);
+    Map<Long, OpeningBook.Entry> entries = new HashMap<>();
+    Deque<State> queue = new ArrayDeque<>();
+    queue.add(new State(parameters));
+    while (!queue.isEmpty()) {
+      State state = queue.poll();
+      SearchState searchState = state.toSearchState();
+      if (state.isDone() || searchState.getMarks() >= plies
+          || isKnown(entries, searchState, symmetry)) {
+        continue;
+      }
+
+      MonteCarloAlgorithmPlayer player =
+          new MonteCarloAlgorithmPlayer(searchState.getCurrentPlayer(), random.split());
+      player.setSymmetric(true);
+      player.setSolverThreshold(0);   // the statistics of the tree are stored
+      player.calculateMove(state);
+      MonteCarloNode root = player.getRoot();
+      int move = player.getMove().pack();
+      List<MonteCarloNode> children = new ArrayList<>();
+      for (int i = 0; i < root.getChildCount(); i++) {
+        MonteCarloNode child = root.getChild(i);
+        children.add(child);
+        if (child.getMove() == move) {
+          entries.put(state.getKey(), new OpeningBook.Entry(state.getKey(), move,
+              child.getWins() / child.getVisits(), child.getVisits()));
+        }
+      }
+
+      children.sort((first, second) -> Integer.compare(second.getVisits(), first.getVisits()));
+      for (int i = 0; i < Math.min(width, children.size()); i++) {
+        queue.add(state.applyGameMove(GameMove.getInstance(children.get(i).getMove())));
+      }
+    }
+    return entries.values();
+  }
+
+  // Checks if a position or one of its mirror images has been stored.
+  private static boolean isKnown(Map<Long, OpeningBook.Entry> entries, SearchState state,
+      Symmetry symmetry) {
+    if (entries.containsKey(state.getKey())) {
+      return true;
+    }
+    for (int s = 0; s < symmetry.getCount(); s++) {
+      if (entries.containsKey(symmetry.getKey(state, s))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -29,4 +29,20 @@ public interface Player {
    * @return String message about the game
    */
   String getMessage();
+
+  /**
+   * Asks a running calculateMove, called on another thread, to stop searching and
+   * choose the best move found so far. Interrupting the thread of calculateMove
+   * has the same effect. Players that cannot stop early ignore it.
+   */
+  default void cancel() {
+  }
+
+  /**
+   * The best move of a running calculateMove so far, safe to call from any thread.
+   * @return the move, or null if none is known yet or the player cannot tell
+   */
+  default GameMove getBestMoveSoFar() {
+    return null;
+  }
 }
\ No newline at end of file
@@ -75,20 +75,42 @@ public class Presenter {
         new humanPlayer(1),
         RandomPlayer.getInstance(1),
                 
-        MonteCarloAlgorithmPlayer.getInstance(1)
+        monteCarloPlayer(1, false),
+        monteCarloPlayer(1, true),
+        RootParallelMonteCarloPlayer.getInstance(1, Runtime.getRuntime().availableProcessors()),
+        TreeParallelMonteCarloPlayer.getInstance(1, Runtime.getRuntime().availableProcessors()),
+        AlphaBetaPlayer.getInstance(1)
     );
     playerChoiceBox.getSelectionModel().selectFirst();
     playerTwoChoiceBox.getItems().addAll(
         new humanPlayer(2),
         RandomPlayer.getInstance(2),
                
-        MonteCarloAlgorithmPlayer.getInstance(2)
+        monteCarloPlayer(2, false),
+        monteCarloPlayer(2, true),
+        RootParallelMonteCarloPlayer.getInstance(2, Runtime.getRuntime().availableProcessors()),
+        TreeParallelMonteCarloPlayer.getInstance(2, Runtime.getRuntime().availableProcessors()),
+        AlphaBetaPlayer.getInstance(2)
     );
     playerTwoChoiceBox.getSelectionModel().selectFirst();
 
     enableDisableControls(false);
   }
 
+  // A MonteCarloAlgorithmPlayer, with pondering it searches while the other player thinks.
+  // The progress of long searches is logged every second, the game loop logs the last snapshot.
+  private Player monteCarloPlayer(int id, boolean pondering) {
+    MonteCarloAlgorithmPlayer player =
+        (MonteCarloAlgorithmPlayer) MonteCarloAlgorithmPlayer.getInstance(id);
+    player.setPondering(pondering);
+    player.setProgressListener(progress -> {
+      if (!progress.isDone()) {
+        log.println("Player " + id + ": " + progress);
+      }
+    }, 1000);
+    return player;
+  }
+
   @FXML
   private void connectkcanvasHandler(MouseEvent mouseEvent) {
     double xAxis = mouseEvent.getX();
@@ -216,15 +238,23 @@ public class Presenter {
     } else {
       log.println("The game loop has ended without the game ending...");
     }
+    // Pondering players would search on after the game.
+    for (Player player : new Player[] {game.getPlayerOne(), game.getPlayerTwo()}) {
+      if (player instanceof MonteCarloAlgorithmPlayer) {
+        ((MonteCarloAlgorithmPlayer) player).stopPondering();
+      }
+    }
     enableDisableControls(false);
   }
 
-  // Kill the thread running the game loop.
+  // Kill the thread running the game loop, a running search stops with its best move so far.
   private void killGameLoop() {
     assert (gameLoopThread != null);
 
     Thread temp = gameLoopThread;
     gameLoopThread = null;
+    game.getPlayerOne().cancel();
+    game.getPlayerTwo().cancel();
     temp.interrupt();
   }
   // END: game loop methods
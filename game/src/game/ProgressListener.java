@@ -0,0 +1,15 @@
+package game;
+
+/**
+ * Receives snapshots of a running search, on the thread of the search.
+ * Implementations should return quickly, the search waits for them.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+  /**
+   * Called periodically during a search and once when it is done.
+   * @param progress the snapshot, not null
+   */
+  void onProgress(SearchProgress progress);
+}
@@ -1,7 +1,7 @@
 package game;
 
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 /**
  * A class implementing a ConnectK player,  without any heuristics.
@@ -11,7 +11,7 @@ import java.util.Random;
  class RandomPlayer implements Player {
   private int id;
   private GameMove move;
-  private Random random;
+  private SplittableRandom random;
 
     /**
      * Get an instance of a RandomPlayer
@@ -22,7 +22,20 @@ import java.util.Random;
   public static Player getInstance(int id) {
     assert (id == 1 || id == 2);
 
-    return new RandomPlayer(id, new Random());
+    return new RandomPlayer(id, new SplittableRandom());
+  }
+
+    /**
+     * Get an instance of a RandomPlayer with a seeded random number generator.
+     *
+     * @param id  the id of the player, 1 or 2
+     * @param seed  the seed
+     * @return a RandomPlayer object, not null
+     */
+  public static Player getInstance(int id, long seed) {
+    assert (id == 1 || id == 2);
+
+    return new RandomPlayer(id, new SplittableRandom(seed));
   }
 
 
@@ -31,7 +44,7 @@ import java.util.Random;
    * @param id ID of the player
    * @param random Random number generator
    */
-  protected RandomPlayer(int id, Random random) {
+  protected RandomPlayer(int id, SplittableRandom random) {
     assert (id == 1 || id == 2);
     assert (random != null);
 
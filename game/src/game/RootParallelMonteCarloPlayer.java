@@ -0,0 +1,220 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A Monte Carlo Tree Search player that runs independent searches on several threads
+ * (root parallelisation). Every thread has its own tree and random number generator,
+ * the statistics of the root children are added up before the move is chosen.
+ */
+class RootParallelMonteCarloPlayer implements Player {
+  private static final long CANCEL_POLL_MILLIS = 10;  // interval of checks for cancellation
+
+  private int id;
+  private MonteCarloAlgorithmPlayer[] workers;
+  private ExecutorService executor;
+  private GameMove chosenGameMove;
+  private volatile boolean cancelled;
+
+  /**
+   * Get an instance of a RootParallelMonteCarloPlayer
+   *
+   * @param id  the id of the player, 1 or 2
+   * @param threads  the number of search threads, at least 1
+   * @return a RootParallelMonteCarloPlayer object, not null
+   */
+  public static Player getInstance(int id, int threads) {
+    assert (id == 1 || id == 2);
+    assert (threads >= 1);
+
+    return getInstance(id, threads, new SplittableRandom());
+  }
+
+  /**
+   * Get an instance of a RootParallelMonteCarloPlayer with seeded random number generators.
+   * With an iteration limit, players with the same seed choose the same moves.
+   *
+   * @param id  the id of the player, 1 or 2
+   * @param threads  the number of search threads, at least 1
+   * @param seed  the seed
+   * @return a RootParallelMonteCarloPlayer object, not null
+   */
+  public static Player getInstance(int id, int threads, long seed) {
+    assert (id == 1 || id == 2);
+    assert (threads >= 1);
+
+    return getInstance(id, threads, new SplittableRandom(seed));
+  }
+
+  // Create the workers, each with a generator split off random.
+  private static Player getInstance(int id, int threads, SplittableRandom random) {
+    MonteCarloAlgorithmPlayer[] workers = new MonteCarloAlgorithmPlayer[threads];
+    for (int i = 0; i < threads; i++) {
+      workers[i] = new MonteCarloAlgorithmPlayer(id, random.split());
+      workers[i].setSolverThreshold(0);   // the move is chosen from the trees of all workers
+    }
+    return new RootParallelMonteCarloPlayer(id, workers);
+  }
+
+  /**
+   * Constructor
+   * @param id Player ID
+   * @param workers The players running the searches, one per thread,
+   *     they share the iteration and node limits
+   */
+  protected RootParallelMonteCarloPlayer(int id, MonteCarloAlgorithmPlayer[] workers) {
+    assert (id == 1 || id == 2);
+    assert (workers != null && workers.length > 0);
+
+    this.id = id;
+    this.workers = workers;
+    for (int i = 0; i < workers.length; i++) {
+      workers[i].setBudgetShare(i, workers.length);
+    }
+    this.executor = ThreadPools.newDaemonPool("RootParallelMonteCarloPlayer-" + id,
+        workers.length);
+  }
+
+  @Override
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Runs one search per thread and chooses the move with the highest win rate over all
+   * searches. The iteration and node limits of connectkParameters are split among the threads,
+   * so all threads together run as many simulations as a single MonteCarloAlgorithmPlayer.
+   * The time limit applies to every thread.
+   * Cancelling or interrupting the search stops all threads.
+   * @param state Current state
+   */
+  @Override
+  public void calculateMove(State state) {
+    assert (state != null);
+    assert (!state.isDone());
+
+    cancelled = false;
+    List<Future<?>> searches = new ArrayList<>();
+    for (MonteCarloAlgorithmPlayer worker : workers) {
+      searches.add(executor.submit(() -> worker.calculateMove(state)));
+    }
+    waitFor(searches);
+
+    double bestScore = Double.NEGATIVE_INFINITY;
+    int bestMove = -1;
+    for (Map.Entry<Integer, double[]> entry : mergeStatistics().entrySet()) {
+      double score = entry.getValue()[0] / entry.getValue()[1];
+      if (score > bestScore) {
+        bestScore = score;
+        bestMove = entry.getKey();
+      }
+    }
+
+    assert (bestMove != -1);
+
+    chosenGameMove = GameMove.getInstance(bestMove);
+  }
+
+  /**
+   * Adds up the statistics of the root children of all workers.
+   * @return the wins and visits of every move of the last search, keyed by packed move
+   */
+  Map<Integer, double[]> mergeStatistics() {
+    Map<Integer, double[]> statistics = new HashMap<>();
+    for (MonteCarloAlgorithmPlayer worker : workers) {
+      MonteCarloNode root = worker.getRoot();
+      for (int i = 0; i < root.getChildCount(); i++) {
+        MonteCarloNode child = root.getChild(i);
+        double[] sum = statistics.computeIfAbsent(child.getMove(), move -> new double[2]);
+        sum[0] += child.getWins();
+        sum[1] += child.getVisits();
+      }
+    }
+    return statistics;
+  }
+
+  // Waits for all searches, an interrupt cancels them and is passed on once they are done.
+  // Workers are cancelled again while they run, one may not have started when cancel was called.
+  private void waitFor(List<Future<?>> searches) {
+    boolean interrupted = false;
+    for (Future<?> search : searches) {
+      while (true) {
+        try {
+          search.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+          break;
+        } catch (TimeoutException error) {
+          if (cancelled) {
+            cancel();
+          }
+        } catch (InterruptedException error) {
+          interrupted = true;
+          cancel();
+        } catch (ExecutionException error) {
+          throw new IllegalStateException("RootParallelMonteCarloPlayer::calculateMove: "
+              + "search failed.", error.getCause());
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Getter for the players running the searches, one per thread.
+   * @return the workers, their roots hold the trees of the last search
+   */
+  MonteCarloAlgorithmPlayer[] getWorkers() {
+    return workers;
+  }
+
+  @Override
+  public GameMove getMove() {
+    assert (chosenGameMove != null);
+
+    return chosenGameMove;
+  }
+
+  @Override
+  public void cancel() {
+    cancelled = true;
+    for (MonteCarloAlgorithmPlayer worker : workers) {
+      worker.cancel();
+    }
+  }
+
+  /**
+   * The best move so far of the most threads.
+   */
+  @Override
+  public GameMove getBestMoveSoFar() {
+    Map<GameMove, Integer> votes = new HashMap<>();
+    GameMove best = null;
+    for (MonteCarloAlgorithmPlayer worker : workers) {
+      GameMove move = worker.getBestMoveSoFar();
+      if (move != null && votes.merge(move, 1, Integer::sum) > votes.getOrDefault(best, 0)) {
+        best = move;
+      }
+    }
+    return best;
+  }
+
+  @Override
+  public String toString() {
+    return "Monte Carlo Tree Search (" + workers.length + " threads, root parallel)";
+  }
+
+  @Override
+  public String getMessage() {
+    return null;
+  }
+}
@@ -0,0 +1,76 @@
+package game;
+
+/**
+ * The stopping criterion of a search: time, iteration and node limits from
+ * connectkParameters, whichever is reached first. A budget is also exhausted when it is
+ * cancelled, from any thread, or when the thread checking it is interrupted.
+ */
+class SearchBudget {
+  private boolean timed;
+  private long stopTime;
+  private long iterationLimit;
+  private long nodeLimit;
+  private volatile boolean cancelled = false;
+
+  /**
+   * Starts a budget, the time limit counts from now.
+   * @param parameters Parameters with the limits
+   */
+  public SearchBudget(connectkParameters parameters) {
+    this(parameters, 0, 1);
+  }
+
+  /**
+   * Starts a budget with a share of the iteration and node limits, for one of several
+   * searches that together keep the limits. The shares add up to the limits, a share
+   * of a limit set is at least 1. The time limit counts from now for every share.
+   * @param parameters Parameters with the limits
+   * @param share Index of the share, 0 to shares - 1
+   * @param shares Number of shares the limits are split into
+   */
+  public SearchBudget(connectkParameters parameters, int share, int shares) {
+    assert (parameters != null);
+    assert (0 <= share && share < shares);
+
+    this.timed = parameters.hasTimeLimit();
+    this.stopTime = System.nanoTime() + parameters.getTimeLimit() * 1000000;
+    this.iterationLimit = share(parameters.getIterationLimit(), share, shares);
+    this.nodeLimit = share(parameters.getNodeLimit(), share, shares);
+  }
+
+  // Part share of limit split into shares parts, 0 stays no limit.
+  private static long share(long limit, int share, int shares) {
+    if (limit == 0) {
+      return 0;
+    }
+    return Math.max(1, limit * (share + 1) / shares - limit * share / shares);
+  }
+
+  /**
+   * Checks if the search has to stop.
+   * @param iterations Number of simulations run so far
+   * @param nodes Number of tree nodes created so far
+   * @return true if any limit is reached or the search is cancelled
+   */
+  public boolean isExhausted(long iterations, long nodes) {
+    return (iterationLimit > 0 && iterations >= iterationLimit)
+        || (nodeLimit > 0 && nodes >= nodeLimit)
+        || (timed && stopTime <= System.nanoTime())
+        || isCancelled();
+  }
+
+  /**
+   * Ends the search at its next check of the budget.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Checks if the search has been cancelled or the current thread interrupted.
+   * @return true if the search has to stop early
+   */
+  public boolean isCancelled() {
+    return cancelled || Thread.currentThread().isInterrupted();
+  }
+}
@@ -0,0 +1,179 @@
+package game;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A snapshot of a running tree search: speed, size and depth of the tree,
+ * the most visited moves of the root and the principal variation.
+ */
+public class SearchProgress {
+  private long elapsedMillis;
+  private long iterations;
+  private int nodes;
+  private int depth;
+  private List<MoveStatistics> topMoves;
+  private List<GameMove> principalVariation;
+  private boolean done;
+
+  /**
+   * Constructor
+   * @param elapsedMillis Time since the search started
+   * @param iterations Number of simulations run
+   * @param nodes Number of nodes in the tree
+   * @param depth Deepest node reached below the root
+   * @param topMoves The most visited moves of the root, most visited first
+   * @param principalVariation The moves expected to be played, most visited at every node
+   * @param done true for the last snapshot of a search
+   */
+  public SearchProgress(long elapsedMillis, long iterations, int nodes, int depth,
+      List<MoveStatistics> topMoves, List<GameMove> principalVariation, boolean done) {
+    assert (topMoves != null);
+    assert (principalVariation != null);
+
+    this.elapsedMillis = elapsedMillis;
+    this.iterations = iterations;
+    this.nodes = nodes;
+    this.depth = depth;
+    this.topMoves = Collections.unmodifiableList(topMoves);
+    this.principalVariation = Collections.unmodifiableList(principalVariation);
+    this.done = done;
+  }
+
+  /**
+   * Time since the search started.
+   * @return the milliseconds
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * Number of simulations run.
+   * @return the simulations of this search
+   */
+  public long getIterations() {
+    return iterations;
+  }
+
+  /**
+   * Speed of the search.
+   * @return simulations per second, 0 if no time has passed
+   */
+  public double getIterationsPerSecond() {
+    return elapsedMillis == 0 ? 0 : iterations * 1000.0 / elapsedMillis;
+  }
+
+  /**
+   * Size of the tree.
+   * @return the number of nodes
+   */
+  public int getNodes() {
+    return nodes;
+  }
+
+  /**
+   * Deepest node reached below the root.
+   * @return the depth in plies
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * The most visited moves of the root.
+   * @return the moves, most visited first, unmodifiable
+   */
+  public List<MoveStatistics> getTopMoves() {
+    return topMoves;
+  }
+
+  /**
+   * The moves expected to be played.
+   * @return the most visited move at every node from the root, unmodifiable
+   */
+  public List<GameMove> getPrincipalVariation() {
+    return principalVariation;
+  }
+
+  /**
+   * Checks if this is the last snapshot of the search.
+   * @return true if the search is done
+   */
+  public boolean isDone() {
+    return done;
+  }
+
+  /**
+   * One line for a log: speed, tree size and depth, top moves and principal variation,
+   * moves written as row,column.
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(iterations).append(" iterations in ").append(elapsedMillis).append(" ms (")
+        .append(Math.round(getIterationsPerSecond())).append("/s), ")
+        .append(nodes).append(" nodes, depth ").append(depth).append(", moves");
+    for (MoveStatistics statistics : topMoves) {
+      builder.append(' ').append(statistics);
+    }
+    builder.append(", pv");
+    for (GameMove move : principalVariation) {
+      builder.append(' ').append(move.getRow()).append(',').append(move.getColumn());
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Visits and win rate of a move of the root.
+   */
+  public static class MoveStatistics {
+    private GameMove move;
+    private int visits;
+    private double winRate;
+
+    /**
+     * Constructor
+     * @param move The move
+     * @param visits Number of simulations through the move
+     * @param winRate Share of them won by the player making it
+     */
+    public MoveStatistics(GameMove move, int visits, double winRate) {
+      assert (move != null);
+
+      this.move = move;
+      this.visits = visits;
+      this.winRate = winRate;
+    }
+
+    /**
+     * The move of the root.
+     * @return the move
+     */
+    public GameMove getMove() {
+      return move;
+    }
+
+    /**
+     * Number of simulations through the move.
+     * @return the visits
+     */
+    public int getVisits() {
+      return visits;
+    }
+
+    /**
+     * Share of the simulations won by the player making the move.
+     * @return the win rate between 0 and 1
+     */
+    public double getWinRate() {
+      return winRate;
+    }
+
+    @Override
+    public String toString() {
+      return move.getRow() + "," + move.getColumn() + " " + visits + " "
+          + Math.round(winRate * 100) + "%";
+    }
+  }
+}
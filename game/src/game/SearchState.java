@@ -0,0 +1,559 @@
+package game;
+
+/**
+ * A mutable game state for search algorithms.
+ *
+ * <p>Unlike State, moves are made in place with makeMove and taken back with unmakeMove,
+ * so a whole simulation runs without allocating. Moves are packed into a single int,
+ * see packMove. Use State.toSearchState and toState to convert between the two.
+ */
+class SearchState {
+  private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+  private connectkParameters parameters;
+  private int words;
+  private long[] bitboard;
+  private long key = 0;   // Zobrist key of the board, see Zobrist
+  private int marks = 0;
+  private int winner = 0;
+
+  // Undo stack: bit index of every disc placed and the winner before it was placed.
+  private int[] history;
+  private int[] winners;
+  private int depth = 0;
+
+  private long[] cells;   // scratch board for getWinningMoves
+  private long[] board;   // the cells without the sentinel bits, see Bitboard.boardMask
+  private long[] scratch; // scratch space of Bitboard.winningCells
+
+  // heights[column] is the number of rows from the bottom up to the topmost disc, see State.
+  // Kept up to date with gravity only.
+  private int[] heights;
+  // The valid moves: open columns with gravity, bit indices of the empty cells without.
+  // A move is removed by moving the last one into its place and put back by the reverse,
+  // since moves are taken back in reverse order slots[id] is still its old place.
+  private int[] open;
+  private int[] slots;    // slots[id] is the place of id in open
+  private int openCount = 0;
+  private IncrementalHeuristic heuristic;   // kept up to date by makeMove and unmakeMove, or null
+
+  /**
+   * Constructor, creates an empty board.
+   * @param parameters Parameters for the game (rows, columns, winLength, gravity and time limit)
+   */
+  public SearchState(connectkParameters parameters) {
+    assert (parameters != null);
+
+    this.parameters = parameters;
+    this.words = Bitboard.words(parameters);
+    this.bitboard = new long[2 * words];
+    this.history = new int[parameters.getRows() * parameters.getColumns()];
+    this.winners = new int[history.length];
+    this.cells = new long[words];
+    this.board = Bitboard.boardMask(parameters);
+    this.scratch = new long[Bitboard.scratchLength(parameters)];
+    this.heights = new int[parameters.getColumns()];
+    this.open = new int[Bitboard.size(parameters)];
+    this.slots = new int[open.length];
+    resetMoves();
+  }
+
+  /**
+   * Packs a move into an int, the same as GameMove.pack.
+   * @param row the row
+   * @param column the column
+   * @return the packed move
+   */
+  public static int packMove(int row, int column) {
+    return GameMove.pack(row, column);
+  }
+
+  /**
+   * Row of a packed move.
+   * @param move the packed move
+   * @return the row
+   */
+  public static int getRow(int move) {
+    return GameMove.unpackRow(move);
+  }
+
+  /**
+   * Column of a packed move.
+   * @param move the packed move
+   * @return the column
+   */
+  public static int getColumn(int move) {
+    return GameMove.unpackColumn(move);
+  }
+
+  /**
+   * Overwrites this state with the given position, reusing the existing arrays.
+   * The board must have the same parameters.
+   * @param parameters Parameters of the position
+   * @param bitboard The discs of both players, see State
+   * @param key Zobrist key of the bitboard
+   * @param marks Number of discs on the board
+   * @param winner The winner of the position, 0 if none
+   */
+  void load(connectkParameters parameters, long[] bitboard, long key, int marks, int winner) {
+    assert (parameters.getRows() == this.parameters.getRows());
+    assert (parameters.getColumns() == this.parameters.getColumns());
+    assert (bitboard.length == this.bitboard.length);
+
+    this.parameters = parameters;
+    if (scratch.length < Bitboard.scratchLength(parameters)) {
+      scratch = new long[Bitboard.scratchLength(parameters)];   // a longer winLength
+    }
+    System.arraycopy(bitboard, 0, this.bitboard, 0, bitboard.length);
+    this.key = key;
+    this.marks = marks;
+    this.winner = winner;
+    // Moves made before the copy cannot be taken back.
+    depth = 0;
+    resetMoves();
+    if (heuristic != null) {
+      heuristic.reset(this);
+    }
+  }
+
+  /**
+   * Overwrites another SearchState of the same board size with this position
+   * without allocating. Its undo stack is cleared.
+   * @param target the SearchState to overwrite
+   */
+  public void copyInto(SearchState target) {
+    assert (target != null);
+
+    target.load(parameters, bitboard, key, marks, winner);
+  }
+
+  /**
+   * Copies this position into a new immutable State.
+   * @return the State
+   */
+  public State toState() {
+    return new State(parameters, bitboard.clone(), key, marks, winner);
+  }
+
+  /**
+   * Attaches a heuristic whose counts are updated by every makeMove and unmakeMove,
+   * so it can evaluate the position at any time without scanning the board.
+   * @param heuristic the heuristic for this board size, null to detach
+   */
+  public void setHeuristic(IncrementalHeuristic heuristic) {
+    assert (heuristic == null
+        || heuristic.getconnectkParameters().getRows() == parameters.getRows()
+        && heuristic.getconnectkParameters().getColumns() == parameters.getColumns()
+        && heuristic.getconnectkParameters().getWinLength() == parameters.getWinLength());
+
+    this.heuristic = heuristic;
+    if (heuristic != null) {
+      heuristic.reset(this);
+    }
+  }
+
+  /**
+   * Getter for the attached heuristic.
+   * @return the heuristic or null
+   */
+  public IncrementalHeuristic getHeuristic() {
+    return heuristic;
+  }
+
+  /**
+   * Getter for connectkParameters
+   * @return Parameters (rows, columns, winLength, gravity and time limit)
+   */
+  public connectkParameters getconnectkParameters() {
+    return parameters;
+  }
+
+  /**
+   * Getter for the Zobrist key, the same as State.getKey for the same board.
+   * @return 64-bit key of the board
+   */
+  public long getKey() {
+    return key;
+  }
+
+  /**
+   * Computes the Zobrist key of the image of this position under a map of the cells.
+   * @param map map of the bit indices, see Symmetry
+   * @return the key of the mapped board
+   */
+  long getKey(int[] map) {
+    long mapped = 0;
+    for (int player = 1; player <= 2; player++) {
+      int offset = (player - 1) * words;
+      for (int i = 0; i < words; i++) {
+        for (long word = bitboard[offset + i]; word != 0; word &= word - 1) {
+          mapped ^= Zobrist.key(player, map[i * 64 + Long.numberOfTrailingZeros(word)]);
+        }
+      }
+    }
+    return mapped;
+  }
+
+  /**
+   * Checks if a map of the cells turns this position into another one,
+   * e.g. whether a position is symmetric if other is this.
+   * @param map map of the bit indices, see Symmetry
+   * @param other a position of the same board size
+   * @return true if every disc is mapped onto a disc of the same player of other
+   */
+  boolean isMappedOnto(int[] map, SearchState other) {
+    assert (other != null);
+    assert (other.words == words);
+
+    if (other.marks != marks) {
+      return false;
+    }
+    for (int offset = 0; offset <= words; offset += words) {
+      for (int i = 0; i < words; i++) {
+        for (long word = bitboard[offset + i]; word != 0; word &= word - 1) {
+          if (!Bitboard.get(other.bitboard, offset,
+              map[i * 64 + Long.numberOfTrailingZeros(word)])) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Return ID of the current player.
+   * @return Integer ID of the current player.
+   */
+  public int getCurrentPlayer() {
+    return marks % 2 + 1;
+  }
+
+  /**
+   * Number of discs on the board.
+   * @return the number of marks
+   */
+  public int getMarks() {
+    return marks;
+  }
+
+  /**
+   * Returns the player at the given position.
+   * @param row the row
+   * @param column the column
+   * @return Player ID, 0 if the position is empty
+   */
+  public int getPlayerAt(int row, int column) {
+    int index = Bitboard.index(parameters, row, column);
+    if (Bitboard.get(bitboard, 0, index)) {
+      return 1;
+    }
+    if (Bitboard.get(bitboard, words, index)) {
+      return 2;
+    }
+    return 0;
+  }
+
+  /**
+   * Checks if the game has finished.
+   * @return True if the game has finished.
+   */
+  public boolean isDone() {
+    return marks == history.length || winner > 0;
+  }
+
+  /**
+   * Returns the winning player's ID once the game has finished.
+   * @return Returns the Integer ID of the winning player, 0 for a draw.
+   */
+  public int getWinner() {
+    if (!isDone()) {
+      throw new IllegalStateException("SearchState::getWinner: The game is not done.");
+    }
+    return winner;
+  }
+
+  /**
+   * Writes the valid moves into the given array. With gravity the moves
+   * already contain the row the disc lands on.
+   * @param moves Array of at least rows * columns packed moves
+   * @return The number of valid moves written
+   */
+  public int getValidMoves(int[] moves) {
+    assert (moves != null);
+
+    for (int i = 0; i < openCount; i++) {
+      moves[i] = getValidMove(i);
+    }
+    return openCount;
+  }
+
+  /**
+   * Number of valid moves, in O(1).
+   * @return the number of open columns with gravity, of empty cells without
+   */
+  public int getValidMoveCount() {
+    return openCount;
+  }
+
+  /**
+   * A valid move by its number, in O(1). The order of the moves changes with every move made,
+   * so a random move is getValidMove(random.nextInt(getValidMoveCount())).
+   * @param index number of the move, less than getValidMoveCount
+   * @return the packed move, with gravity the row the disc lands on
+   */
+  public int getValidMove(int index) {
+    assert (0 <= index && index < openCount);
+
+    int id = open[index];
+    if (parameters.isGravity()) {
+      return packMove(landingRow(id), id);
+    }
+    int height = Bitboard.height(parameters);
+    return packMove(id % height, id / height);
+  }
+
+  /**
+   * Checks if a disc of the given player on an empty cell would complete a line,
+   * without making the move.
+   * @param move the packed move, with gravity the row the disc lands on as in getValidMoves
+   * @param player the player
+   * @return true if the move wins
+   */
+  public boolean isWinningMove(int move, int player) {
+    assert (player == 1 || player == 2);
+
+    int index = Bitboard.index(parameters, getRow(move), getColumn(move));
+    assert (isEmpty(getRow(move), getColumn(move)));
+
+    int offset = (player - 1) * words;
+    Bitboard.set(bitboard, offset, index);
+    boolean win = Bitboard.isWin(bitboard, offset, index, parameters);
+    Bitboard.clear(bitboard, offset, index);
+    return win;
+  }
+
+  /**
+   * Writes the moves that complete a line of the given player right away,
+   * see State.getWinningGameMoves.
+   * @param player the player, 1 or 2
+   * @param moves Array of at least rows * columns packed moves
+   * @return The number of winning moves written
+   */
+  public int getWinningMoves(int player, int[] moves) {
+    assert (player == 1 || player == 2);
+    assert (moves != null);
+
+    if (!Bitboard.winningCells(bitboard, player, parameters, board, scratch, cells)) {
+      return 0;
+    }
+    int height = Bitboard.height(parameters);
+    int count = 0;
+    for (int i = 0; i < words; i++) {
+      for (long word = cells[i]; word != 0; word &= word - 1) {
+        int index = i * 64 + Long.numberOfTrailingZeros(word);
+        moves[count++] = packMove(index % height, index / height);
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Finds one move that completes a line of the given player right away.
+   * @param player the player, 1 or 2
+   * @return a winning packed move as in getValidMoves, -1 if there is none
+   */
+  public int findWinningMove(int player) {
+    assert (player == 1 || player == 2);
+
+    if (!Bitboard.winningCells(bitboard, player, parameters, board, scratch, cells)) {
+      return -1;
+    }
+    int height = Bitboard.height(parameters);
+    for (int i = 0; ; i++) {
+      if (cells[i] != 0) {
+        int index = i * 64 + Long.numberOfTrailingZeros(cells[i]);
+        return packMove(index % height, index / height);
+      }
+    }
+  }
+
+  /**
+   * Looks for a winning move of the given player on the lines through a cell,
+   * at most winLength - 1 cells away from it.
+   * @param near the packed cell
+   * @param player the player
+   * @return a winning packed move as in getValidMoves, -1 if there is none
+   */
+  public int findWinningMoveNear(int near, int player) {
+    assert (player == 1 || player == 2);
+
+    int rows = parameters.getRows();
+    int columns = parameters.getColumns();
+    int reach = parameters.getWinLength() - 1;
+    for (int[] direction : DIRECTIONS) {
+      for (int distance = -reach; distance <= reach; distance++) {
+        int row = getRow(near) + distance * direction[0];
+        int column = getColumn(near) + distance * direction[1];
+        if (distance == 0 || row < 0 || row >= rows || column < 0 || column >= columns
+            || !isEmpty(row, column)
+            || (parameters.isGravity() && landingRow(column) != row)) {
+          continue;
+        }
+        if (isWinningMove(packMove(row, column), player)) {
+          return packMove(row, column);
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Places a disc of the current player. With gravity the disc falls down the column,
+   * so only the column of the move matters.
+   * @param row the row
+   * @param column the column
+   */
+  public void makeMove(int row, int column) {
+    assert (!isDone());
+    assert (0 <= row && row < parameters.getRows());
+    assert (0 <= column && column < parameters.getColumns());
+
+    if (parameters.isGravity()) {
+      row = landingRow(column);
+    }
+    assert (isEmpty(row, column));
+
+    int index = Bitboard.index(parameters, row, column);
+    int offset = marks % 2 * words;
+    Bitboard.set(bitboard, offset, index);
+    key ^= Zobrist.key(marks % 2 + 1, index);
+    history[depth] = index;
+    winners[depth] = winner;
+    depth++;
+    marks++;
+    if (parameters.isGravity()) {
+      heights[column]++;
+      if (heights[column] == parameters.getRows()) {
+        removeMove(column);
+      }
+    } else {
+      removeMove(index);
+    }
+    if (heuristic != null) {
+      heuristic.add(index, offset == 0 ? 1 : 2);
+    }
+    if (Bitboard.isWin(bitboard, offset, index, parameters)) {
+      winner = marks % 2 == 1 ? 1 : 2;
+    }
+  }
+
+  /**
+   * Places a disc of the current player.
+   * @param move the packed move
+   */
+  public void makeMove(int move) {
+    makeMove(getRow(move), getColumn(move));
+  }
+
+  /**
+   * Takes back the last move made by makeMove, restoring marks and winner.
+   */
+  public void unmakeMove() {
+    if (depth == 0) {
+      throw new IllegalStateException("SearchState::unmakeMove: No move to take back.");
+    }
+
+    depth--;
+    marks--;
+    Bitboard.clear(bitboard, marks % 2 * words, history[depth]);
+    key ^= Zobrist.key(marks % 2 + 1, history[depth]);
+    winner = winners[depth];
+    if (parameters.isGravity()) {
+      int column = history[depth] / Bitboard.height(parameters);
+      if (heights[column] == parameters.getRows()) {
+        restoreMove(column);
+      }
+      heights[column]--;
+    } else {
+      restoreMove(history[depth]);
+    }
+    if (heuristic != null) {
+      heuristic.remove(history[depth], marks % 2 + 1);
+    }
+  }
+
+  /**
+   * Returns the last move made by makeMove.
+   * @return the packed move
+   */
+  public int getLastMove() {
+    if (depth == 0) {
+      throw new IllegalStateException("SearchState::getLastMove: No move made.");
+    }
+
+    int height = Bitboard.height(parameters);
+    int index = history[depth - 1];
+    return packMove(index % height, index / height);
+  }
+
+  // Row a disc dropped into the column lands in, mirrors State.applyGravity.
+  private int landingRow(int column) {
+    return parameters.getRows() - 1 - heights[column];
+  }
+
+  // Recomputes the heights and the valid moves from the bitboard.
+  private void resetMoves() {
+    int rows = parameters.getRows();
+    openCount = 0;
+    for (int column = 0; column < parameters.getColumns(); column++) {
+      heights[column] = 0;
+      for (int row = rows - 1; row >= 0; row--) {
+        if (!isEmpty(row, column)) {
+          heights[column] = rows - row;
+        }
+      }
+      if (parameters.isGravity() && heights[column] < rows) {
+        addMove(column);
+      }
+    }
+    if (!parameters.isGravity()) {
+      for (int row = 0; row < rows; row++) {
+        for (int column = 0; column < parameters.getColumns(); column++) {
+          if (isEmpty(row, column)) {
+            addMove(Bitboard.index(parameters, row, column));
+          }
+        }
+      }
+    }
+  }
+
+  // Appends a move to the valid moves.
+  private void addMove(int id) {
+    open[openCount] = id;
+    slots[id] = openCount++;
+  }
+
+  // Removes a valid move, the last one takes its place.
+  private void removeMove(int id) {
+    int last = open[--openCount];
+    open[slots[id]] = last;
+    slots[last] = slots[id];
+  }
+
+  // Takes back the last removeMove, which removed id.
+  private void restoreMove(int id) {
+    int slot = slots[id];
+    int moved = open[slot];
+    open[openCount] = moved;
+    slots[moved] = openCount++;
+    open[slot] = id;
+    slots[id] = slot;
+  }
+
+  // Checks a cell.
+  private boolean isEmpty(int row, int column) {
+    int index = Bitboard.index(parameters, row, column);
+    return !Bitboard.get(bitboard, 0, index) && !Bitboard.get(bitboard, words, index);
+  }
+}
@@ -3,10 +3,19 @@ package game;
 import java.util.*;
 
 class State implements Iterable<GameMove> {
+  private static final Metrics.Counter APPLY_GAME_MOVE = Metrics.counter("state.applyGameMove");
+
   private connectkParameters parameters;
-  private int board[][];
+  // Discs of player 1 are in words [0, words) and of player 2 in [words, 2 * words),
+  // see Bitboard for the layout.
+  private int words;
+  private long[] bitboard;
+  // heights[column] is the number of rows from the bottom up to the topmost disc,
+  // with gravity a disc dropped into the column lands in row rows - 1 - heights[column].
+  private int[] heights;
+  private long key = 0;   // Zobrist key of the board, see Zobrist
   private int marks = 0;
-  private int winner = 0;
+  int winner = 0;   // package-private so tests can set up finished states
 
   /**
    * Constructor
@@ -16,7 +25,58 @@ class State implements Iterable<GameMove> {
     assert (parameters != null);
 
     this.parameters = parameters;
-    this.board = new int[parameters.getRows()][parameters.getColumns()];
+    this.words = Bitboard.words(parameters);
+    this.bitboard = new long[2 * words];
+    this.heights = new int[parameters.getColumns()];
+  }
+
+  /**
+   * Constructor used by SearchState.toState
+   * @param parameters Parameters for the game
+   * @param bitboard The discs of both players, owned by the new State
+   * @param key Zobrist key of the bitboard
+   * @param marks Number of discs on the board
+   * @param winner The winner, 0 if none
+   */
+  State(connectkParameters parameters, long[] bitboard, long key, int marks, int winner) {
+    assert (parameters != null);
+    assert (bitboard.length == 2 * Bitboard.words(parameters));
+    assert (key == Zobrist.hash(bitboard, Bitboard.words(parameters)));
+
+    this.parameters = parameters;
+    this.words = Bitboard.words(parameters);
+    this.bitboard = bitboard;
+    this.heights = new int[parameters.getColumns()];
+    this.key = key;
+    this.marks = marks;
+    this.winner = winner;
+    for (int column = 0; column < parameters.getColumns(); column++) {
+      for (int row = parameters.getRows() - 1; row >= 0; row--) {
+        if (!isEmpty(row, column)) {
+          heights[column] = parameters.getRows() - row;
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a mutable copy of this state for searching.
+   * @return a new SearchState with the same position
+   */
+  public SearchState toSearchState() {
+    SearchState searchState = new SearchState(parameters);
+    copyInto(searchState);
+    return searchState;
+  }
+
+  /**
+   * Overwrites a SearchState of the same board size with this position without allocating.
+   * @param searchState the SearchState to overwrite
+   */
+  public void copyInto(SearchState searchState) {
+    assert (searchState != null);
+
+    searchState.load(parameters, bitboard, key, marks, winner);
   }
 
   /**
@@ -28,6 +88,9 @@ class State implements Iterable<GameMove> {
     if (isDone()) {
       throw new IllegalStateException("State::applyGameMove: Game is done.");
     }
+    if (Metrics.isEnabled()) {
+      APPLY_GAME_MOVE.increment();
+    }
 
     int currentPlayer = marks % 2 + 1;
     State newState = new State(this);
@@ -56,6 +119,14 @@ class State implements Iterable<GameMove> {
     return parameters;
   }
 
+  /**
+   * Getter for the Zobrist key, equal boards have equal keys.
+   * @return 64-bit key of the board
+   */
+  public long getKey() {
+    return key;
+  }
+
   /**
    * Return ID of the current player.
    * @return Integer ID of the current player.
@@ -72,7 +143,14 @@ class State implements Iterable<GameMove> {
   public int getPlayerAt(GameMove move) {
     assert (move != null);  
 
-    return board[move.getRow()][move.getColumn()];
+    int index = Bitboard.index(parameters, move.getRow(), move.getColumn());
+    if (Bitboard.get(bitboard, 0, index)) {
+      return 1;
+    }
+    if (Bitboard.get(bitboard, words, index)) {
+      return 2;
+    }
+    return 0;
   }
 
   /**
@@ -119,16 +197,58 @@ class State implements Iterable<GameMove> {
   }
 
   /**
-   * This method returns a list of valid moves which lie on the board. 
+   * This method returns a list of valid moves which lie on the board. With gravity
+   * there is one move in row 0 per open column, the disc falls when it is applied.
    * @return List of GameMoves that are valid.
    */
   public List<GameMove> getValidGameMoves() {
     List<GameMove> moves = new ArrayList<>();
-    for (GameMove move : this) {
-      boolean valid = (!parameters.isGravity() || move.getRow() == 0) 
-          && isOnBoard(move) && isAvailable(move);
-      if (valid) {
-        moves.add(move);
+    if (parameters.isGravity()) {
+      // A column is open while its stack does not reach the top row.
+      for (int column = 0; column < heights.length; column++) {
+        if (heights[column] < parameters.getRows()) {
+          moves.add(GameMove.getInstance(0, column));
+        }
+      }
+    } else {
+      // The empty cells are the clear bits of both players, column by column.
+      int height = Bitboard.height(parameters);
+      int rows = parameters.getRows();
+      int size = Bitboard.size(parameters);
+      for (int i = 0; i < words; i++) {
+        for (long empty = ~(bitboard[i] | bitboard[words + i]); empty != 0; empty &= empty - 1) {
+          int index = i * 64 + Long.numberOfTrailingZeros(empty);
+          if (index >= size) {
+            break;
+          }
+          if (index % height < rows) {
+            moves.add(GameMove.getInstance(index % height, index / height));
+          }
+        }
+      }
+    }
+    return moves;
+  }
+
+  /**
+   * Returns the moves that complete a line of the given player right away, found on the
+   * bitboard without copying the state. Ask for the current player to find wins and for
+   * the opponent to find the cells that have to be blocked.
+   * @param player the player, 1 or 2
+   * @return List of winning GameMoves, with gravity the cells the discs land on
+   */
+  public List<GameMove> getWinningGameMoves(int player) {
+    assert (player == 1 || player == 2);
+
+    List<GameMove> moves = new ArrayList<>();
+    long[] cells = new long[words];
+    if (Bitboard.winningCells(bitboard, player, parameters, cells)) {
+      int height = Bitboard.height(parameters);
+      for (int i = 0; i < words; i++) {
+        for (long word = cells[i]; word != 0; word &= word - 1) {
+          int index = i * 64 + Long.numberOfTrailingZeros(word);
+          moves.add(GameMove.getInstance(index % height, index / height));
+        }
       }
     }
     return moves;
@@ -172,16 +292,14 @@ class State implements Iterable<GameMove> {
   private GameMove applyGravity(GameMove move) {
     assert (move != null);
 
-    move = GameMove.getInstance(0, move.getColumn());
-    for (int i = 1; i < parameters.getRows(); i++) {
-      GameMove temp = GameMove.getInstance(i, move.getColumn());
-      if (isOnBoard(temp) && isAvailable(temp)) {
-        move = temp;
-      } else {
-        break;
-      }
-    }
-    return move;
+    int column = move.getColumn();
+    return GameMove.getInstance(parameters.getRows() - 1 - heights[column], column);
+  }
+
+  // Checks a cell without creating a GameMove.
+  private boolean isEmpty(int row, int column) {
+    int index = Bitboard.index(parameters, row, column);
+    return !Bitboard.get(bitboard, 0, index) && !Bitboard.get(bitboard, words, index);
   }
 
   /**
@@ -190,9 +308,9 @@ class State implements Iterable<GameMove> {
    */
   private State(State other) {
     this(other.parameters);
-    for (int row = 0; row < parameters.getRows(); row++) {
-      System.arraycopy(other.board[row], 0, board[row], 0, parameters.getColumns());
-    }
+    System.arraycopy(other.bitboard, 0, bitboard, 0, bitboard.length);
+    System.arraycopy(other.heights, 0, heights, 0, heights.length);
+    key = other.key;
     marks = other.marks;
   }
 
@@ -202,87 +320,35 @@ class State implements Iterable<GameMove> {
    * @param move GameMove object that represents the position.
    * @param player player's ID
    */
-  private void setPlayerAt(GameMove move, int player) {
+  void setPlayerAt(GameMove move, int player) {
     assert (move != null);
     assert (isOnBoard(move));
     assert (isAvailable(move));
     assert (player == 1 || player == 2);
 
-    board[move.getRow()][move.getColumn()] = player;
+    int index = Bitboard.index(parameters, move.getRow(), move.getColumn());
+    Bitboard.set(bitboard, (player - 1) * words, index);
+    key ^= Zobrist.key(player, index);
+    heights[move.getColumn()] = Math.max(heights[move.getColumn()],
+        parameters.getRows() - move.getRow());
   }
 
   /**
    * Checks the 4 possible directions of the connected discs to determine a winner.
+   * Only the lines through the given position are checked, using the player's bitboard.
+   * Package-private for the JMH benchmarks.
    * @param move GameMove object that represents the position.
    * @return Returns true if winLength number of a player's discs 
    * are connected in any of the 4 directions. 
    */
-  private boolean updateWinner(GameMove move) {
-    assert (move != null);
-    assert (isOnBoard(move));
-    assert (!isAvailable(move));
-
-    boolean vertical = updateWinner(move, 1, 0);
-    boolean horizontal = updateWinner(move, 0, 1);
-    boolean positiveDiagonal = updateWinner(move, -1, 1);
-    boolean negativeDiagonal = updateWinner(move, 1, 1);
-
-    return vertical || horizontal || positiveDiagonal || negativeDiagonal;
-  }
-
-  /**
-   * Checks the direction of the line to determine the winner.
-   * @param move GameMove object that represents the position.
-   * @param row x-axis direction.
-   * @param columnDirection y-axis direction.
-   * @return Returns true if the length of the disc chain matches .
-   * the required winLength in any direction. 
-   */
-  private boolean updateWinner(GameMove move, int rowDirection, int columnDirection) {
+  boolean updateWinner(GameMove move) {
     assert (move != null);
     assert (isOnBoard(move));
     assert (!isAvailable(move));
-    assert (-1 <= rowDirection && rowDirection <= 1);
-    assert (-1 <= columnDirection && columnDirection <= 1);
-
-    int winLength = parameters.getWinLength();
-    int row = move.getRow();
-    int column = move.getColumn();
 
-    List<Integer> line = new ArrayList<>();
-    for (int i = -winLength + 1; i <= winLength - 1; i++) {
-      GameMove temp = GameMove.getInstance(row + rowDirection * i, column + columnDirection  * i);
-      if (isOnBoard(temp)) {
-        int player = getPlayerAt(temp);
-        line.add(player);
-      }
-    }
-    return updateWinner(line, getPlayerAt(move));
-  }
-  
-  
-  /**
- * Updates the winner ID according to the line and the owner of the line.
- * @param line List of integer values representing the line.
- * @param player Integer ID of the player.
- * @return True if the length of the disc chain matches the required winLength.
- */
-  private boolean updateWinner(List<Integer> line, int player) {
-    assert (player == 1 || player == 2);
-
-    int winLength = parameters.getWinLength();
-    int chainLength = 0;
-    for (int currentPlayer : line) {
-      if (currentPlayer == player) {
-        chainLength++;
-        if (chainLength == winLength) {
-          return true;
-        }
-      } else {
-        chainLength = 0;
-      }
-    }
-    return false;
+    int index = Bitboard.index(parameters, move.getRow(), move.getColumn());
+    int offset = (getPlayerAt(move) - 1) * words;
+    return Bitboard.isWin(bitboard, offset, index, parameters);
   }
 
   @Override
@@ -296,12 +362,13 @@ class State implements Iterable<GameMove> {
 
     State moves = (State) object;
 
-    return Arrays.deepEquals(board, moves.board);
+    // Different keys always mean different boards, equal keys are confirmed on the board.
+    return key == moves.key && Arrays.equals(bitboard, moves.bitboard);
   }
 
   @Override
   public int hashCode() {
-    return Arrays.deepHashCode(board);
+    return (int) (key ^ (key >>> 32));
   }
 }
 
@@ -0,0 +1,514 @@
+package game;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Simulation results of positions kept on disk, so searches can start from the results
+ * of earlier games, see MonteCarloAlgorithmPlayer.setStatisticsStore.
+ *
+ * <p>A position is identified by its Zobrist key and has a number of visits and the wins
+ * of the player who moved last. The store is a directory with two files:
+ * <ul>
+ * <li>statistics-generation.bin, the snapshot: a hash table with linear probing of 16 byte
+ * slots (key, visits, wins as a float), memory-mapped and searched in place.</li>
+ * <li>statistics.log, the results added since the snapshot as 16 byte records in the same
+ * format, appended by a background thread so flush does not wait for the disk.
+ * They are read back into memory when the store is opened.</li>
+ * </ul>
+ * Both start with a header of 48 bytes (magic, version, rows, columns, winLength, gravity,
+ * capacity, number of entries and generation). compact merges the log into a new snapshot
+ * of the next generation, which also happens when the store is opened with a long log
+ * and when it is closed. The new snapshot gets a new file name, so a mapped snapshot is
+ * never replaced, and older ones are deleted when possible. The log is emptied and given
+ * the new generation afterwards. A log older than the snapshot has been merged into it
+ * already and is not read again, so a crash in between does not count results twice.
+ * A store is used by one thread at a time.
+ */
+class StatisticsStore implements Closeable {
+  /** Start of the file names of the snapshots, followed by the generation and ".bin". */
+  public static final String SNAPSHOT_PREFIX = "statistics-";
+  /** File name of the log. */
+  public static final String LOG = "statistics.log";
+
+  private static final String SNAPSHOT_SUFFIX = ".bin";
+  private static final int SNAPSHOT_MAGIC = 0x434b5354;   // "CKST"
+  private static final int LOG_MAGIC = 0x434b4c47;        // "CKLG"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 48;
+  private static final int RECORD_SIZE = 16;
+  private static final int MIN_CAPACITY = 1024;
+
+  private Path directory;
+  private connectkParameters parameters;
+  private ByteBuffer snapshot;    // mapped snapshot file, null if there is none
+  private int snapshotCapacity = 0;
+  private int snapshotCount = 0;
+  private long generation = 0;    // generation of the snapshot, 0 if there is none
+
+  // Results added since the snapshot, a hash table with linear probing.
+  // visits[slot] == 0 marks an empty slot.
+  private long[] keys = new long[MIN_CAPACITY];
+  private int[] visits = new int[MIN_CAPACITY];
+  private double[] wins = new double[MIN_CAPACITY];
+  private int count = 0;
+
+  private FileChannel log;
+  private ByteBuffer pending = ByteBuffer.allocate(64 * RECORD_SIZE);  // records for the log
+  private ExecutorService writer;
+  private Future<?> lastWrite;
+
+  /**
+   * Constructor, use open.
+   * @param directory the directory of the files
+   * @param parameters the board the positions are on
+   */
+  protected StatisticsStore(Path directory, connectkParameters parameters) {
+    this.directory = directory;
+    this.parameters = parameters;
+  }
+
+  /**
+   * Opens a store, creating the directory and files if they do not exist.
+   * @param directory the directory of the files
+   * @param parameters the board the positions are on
+   * @return the store
+   * @throws IOException if the files cannot be read or written
+   * @throws IllegalArgumentException if the files are not a store of the same board
+   */
+  public static StatisticsStore open(Path directory, connectkParameters parameters)
+      throws IOException {
+    assert (directory != null);
+    assert (parameters != null);
+
+    Files.createDirectories(directory);
+    StatisticsStore store = new StatisticsStore(directory, parameters);
+    Path latest = store.findLatestSnapshot();
+    if (latest != null) {
+      store.mapSnapshot(latest);
+    }
+    store.deleteOldSnapshots();
+    store.openLog();
+    if (store.count > Math.max(store.snapshotCount, 65536)) {
+      store.compact();
+    }
+    return store;
+  }
+
+  /**
+   * Number of visits of a position.
+   * @param key Zobrist key of the position
+   * @return the visits, 0 if the position is unknown
+   */
+  public int getVisits(long key) {
+    long sum = (long) getSnapshotVisits(key) + visits[find(key)];
+    return (int) Math.min(sum, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Wins of the player who made the last move of a position.
+   * @param key Zobrist key of the position
+   * @return the wins, 0 if the position is unknown
+   */
+  public double getWins(long key) {
+    return getSnapshotWins(key) + wins[find(key)];
+  }
+
+  /**
+   * Number of positions added since the last compact.
+   * @return the number of positions in the log
+   */
+  public int getLogSize() {
+    return count;
+  }
+
+  /**
+   * Adds the results of simulations of a position. They are written by the next flush.
+   * @param key Zobrist key of the position
+   * @param visits number of simulations
+   * @param wins wins of the player who made the last move
+   */
+  public void add(long key, int visits, double wins) {
+    assert (visits > 0);
+    assert (0 <= wins && wins <= visits);
+
+    addToTable(key, visits, wins);
+    if (pending.remaining() < RECORD_SIZE) {
+      ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+      pending.flip();
+      larger.put(pending);
+      pending = larger;
+    }
+    pending.putLong(key).putInt(visits).putFloat((float) wins);
+  }
+
+  /**
+   * Appends the results added since the last flush to the log in the background.
+   * @throws IllegalStateException if an earlier write failed
+   */
+  public void flush() {
+    checkLastWrite(false);
+    if (pending.position() == 0) {
+      return;
+    }
+    if (writer == null) {
+      writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "StatisticsStore");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    ByteBuffer records = pending;
+    records.flip();
+    pending = ByteBuffer.allocate(records.capacity());
+    FileChannel channel = log;
+    lastWrite = writer.submit(() -> {
+      while (records.hasRemaining()) {
+        channel.write(records);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Merges the log into a snapshot of the next generation and empties the log.
+   * Waits for the writes of earlier flushes.
+   * @throws IOException if the files cannot be written
+   */
+  public void compact() throws IOException {
+    flush();
+    checkLastWrite(true);
+
+    int total = snapshotCount + count;
+    int capacity = MIN_CAPACITY;
+    while (capacity < 2 * total) {
+      capacity *= 2;
+    }
+    ByteBuffer table = ByteBuffer.allocate(HEADER_SIZE + capacity * RECORD_SIZE);
+    int entries = 0;
+    for (int slot = 0; slot < snapshotCapacity; slot++) {
+      int offset = HEADER_SIZE + slot * RECORD_SIZE;
+      long key = snapshot.getLong(offset);
+      int slotVisits = snapshot.getInt(offset + 8);
+      if (slotVisits != 0) {
+        int deltaSlot = find(key);
+        long sum = (long) slotVisits + visits[deltaSlot];
+        double sumWins = snapshot.getFloat(offset + 12) + wins[deltaSlot];
+        put(table, capacity, key, (int) Math.min(sum, Integer.MAX_VALUE), sumWins);
+        entries++;
+      }
+    }
+    for (int slot = 0; slot < keys.length; slot++) {
+      if (visits[slot] != 0 && getSnapshotVisits(keys[slot]) == 0) {
+        put(table, capacity, keys[slot], visits[slot], wins[slot]);
+        entries++;
+      }
+    }
+    long next = generation + 1;
+    writeHeader(table, SNAPSHOT_MAGIC, capacity, entries, next);
+    table.position(0);
+
+    Path path = getSnapshotPath(next);
+    Path temporary = directory.resolve(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      while (table.hasRemaining()) {
+        channel.write(table);
+      }
+      channel.force(true);
+    }
+    Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+    mapSnapshot(path);
+
+    // The log is older than the snapshot from here on, until it is reset.
+    resetLog();
+    deleteOldSnapshots();
+    keys = new long[MIN_CAPACITY];
+    visits = new int[MIN_CAPACITY];
+    wins = new double[MIN_CAPACITY];
+    count = 0;
+  }
+
+  /**
+   * Compacts the store and closes the files.
+   * @throws IOException if the files cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      compact();
+    } finally {
+      if (writer != null) {
+        writer.shutdown();
+      }
+      log.close();
+    }
+  }
+
+  // File of the snapshot of a generation.
+  private Path getSnapshotPath(long snapshotGeneration) {
+    return directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SNAPSHOT_SUFFIX);
+  }
+
+  // Generation of a snapshot file name, -1 if it is not the name of a snapshot.
+  private static long getGeneration(Path path) {
+    String name = path.getFileName().toString();
+    if (!name.startsWith(SNAPSHOT_PREFIX) || !name.endsWith(SNAPSHOT_SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(),
+          name.length() - SNAPSHOT_SUFFIX.length()));
+    } catch (NumberFormatException error) {
+      return -1;
+    }
+  }
+
+  // The snapshot with the highest generation, null if there is none.
+  private Path findLatestSnapshot() throws IOException {
+    Path latest = null;
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        long fileGeneration = getGeneration(file);
+        if (fileGeneration > 0 && (latest == null || fileGeneration > getGeneration(latest))) {
+          latest = file;
+        }
+      }
+    }
+    return latest;
+  }
+
+  // Deletes the snapshots older than the current one and unfinished ones. Files that cannot
+  // be deleted yet, e.g. still mapped on Windows, are left for the next open.
+  private void deleteOldSnapshots() throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        long fileGeneration = getGeneration(file);
+        if ((fileGeneration > 0 && fileGeneration < generation)
+            || (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX + ".tmp"))) {
+          try {
+            Files.deleteIfExists(file);
+          } catch (IOException error) {
+            // Still in use, deleted by a later open.
+          }
+        }
+      }
+    }
+  }
+
+  // Maps a snapshot file.
+  private void mapSnapshot(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      int capacity = checkHeader(buffer, SNAPSHOT_MAGIC, "snapshot");
+      if (Integer.bitCount(capacity) != 1
+          || buffer.capacity() < HEADER_SIZE + (long) capacity * RECORD_SIZE) {
+        throw new IllegalArgumentException("StatisticsStore::open: truncated snapshot.");
+      }
+      if (buffer.getLong(32) != getGeneration(path)) {
+        throw new IllegalArgumentException("StatisticsStore::open: snapshot "
+            + path.getFileName() + " has generation " + buffer.getLong(32) + ".");
+      }
+      snapshot = buffer;
+      snapshotCapacity = capacity;
+      snapshotCount = buffer.getInt(28);
+      generation = buffer.getLong(32);
+    }
+  }
+
+  // Empties the log and gives it the generation of the snapshot. The records are cut off
+  // before the header is changed, so the log never has a new generation with old records.
+  private void resetLog() throws IOException {
+    log.truncate(HEADER_SIZE);
+    log.force(true);
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    writeHeader(header, LOG_MAGIC, 0, 0, generation);
+    header.position(0);
+    while (header.hasRemaining()) {
+      log.write(header, header.position());
+    }
+    log.position(HEADER_SIZE);
+  }
+
+  // Opens the log for appending and reads its records, a partly written last record is cut off.
+  // A log older than the snapshot has been merged into it and is emptied instead.
+  private void openLog() throws IOException {
+    Path path = directory.resolve(LOG);
+    log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    if (log.size() < HEADER_SIZE) {
+      resetLog();
+    } else {
+      ByteBuffer buffer = ByteBuffer.allocate((int) log.size());
+      while (buffer.hasRemaining()) {
+        if (log.read(buffer, buffer.position()) < 0) {
+          break;
+        }
+      }
+      checkHeader(buffer, LOG_MAGIC, "log");
+      long logGeneration = buffer.getLong(32);
+      if (logGeneration > generation) {
+        throw new IllegalArgumentException("StatisticsStore::open: the snapshot of generation "
+            + logGeneration + " is missing.");
+      }
+      if (logGeneration < generation) {
+        resetLog();
+        return;
+      }
+      int records = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+      for (int i = 0; i < records; i++) {
+        int offset = HEADER_SIZE + i * RECORD_SIZE;
+        addToTable(buffer.getLong(offset), buffer.getInt(offset + 8), buffer.getFloat(offset + 12));
+      }
+      log.truncate(HEADER_SIZE + (long) records * RECORD_SIZE);
+    }
+    log.position(log.size());
+  }
+
+  // Checks the header of a file and returns its capacity.
+  private int checkHeader(ByteBuffer buffer, int magic, String name) {
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != magic
+        || buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("StatisticsStore::open: " + name
+          + " is not a statistics store.");
+    }
+    if (buffer.getInt(8) != parameters.getRows() || buffer.getInt(12) != parameters.getColumns()
+        || buffer.getInt(16) != parameters.getWinLength()
+        || (buffer.getInt(20) != 0) != parameters.isGravity()) {
+      throw new IllegalArgumentException("StatisticsStore::open: " + name
+          + " is for a different board.");
+    }
+    return buffer.getInt(24);
+  }
+
+  // Writes a header at the start of buffer.
+  private void writeHeader(ByteBuffer buffer, int magic, int capacity, int entries,
+      long headerGeneration) {
+    buffer.putInt(0, magic).putInt(4, VERSION).putInt(8, parameters.getRows())
+        .putInt(12, parameters.getColumns()).putInt(16, parameters.getWinLength())
+        .putInt(20, parameters.isGravity() ? 1 : 0).putInt(24, capacity).putInt(28, entries)
+        .putLong(32, headerGeneration);
+  }
+
+  // Waits for the last background write if wait is set, otherwise only if it is done,
+  // and rethrows its error.
+  private void checkLastWrite(boolean wait) {
+    if (lastWrite == null || (!wait && !lastWrite.isDone())) {
+      return;
+    }
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          lastWrite.get();
+          break;
+        } catch (InterruptedException error) {
+          interrupted = true;
+        }
+      }
+    } catch (ExecutionException error) {
+      throw new IllegalStateException("StatisticsStore::flush: write failed.", error.getCause());
+    } finally {
+      lastWrite = null;
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  // Slot of a key in the snapshot, -1 if it is not there.
+  private int findSnapshot(long key) {
+    if (snapshot == null) {
+      return -1;
+    }
+    int mask = snapshotCapacity - 1;
+    for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+      int offset = HEADER_SIZE + slot * RECORD_SIZE;
+      if (snapshot.getInt(offset + 8) == 0) {
+        return -1;
+      }
+      if (snapshot.getLong(offset) == key) {
+        return slot;
+      }
+    }
+  }
+
+  // Visits of a key in the snapshot, 0 if it is not there.
+  private int getSnapshotVisits(long key) {
+    int slot = findSnapshot(key);
+    return slot < 0 ? 0 : snapshot.getInt(HEADER_SIZE + slot * RECORD_SIZE + 8);
+  }
+
+  // Wins of a key in the snapshot, 0 if it is not there.
+  private double getSnapshotWins(long key) {
+    int slot = findSnapshot(key);
+    return slot < 0 ? 0 : snapshot.getFloat(HEADER_SIZE + slot * RECORD_SIZE + 12);
+  }
+
+  // Slot of a key in the table of added results, or the empty slot it would go into.
+  private int find(long key) {
+    int mask = keys.length - 1;
+    int slot = hash(key) & mask;
+    while (visits[slot] != 0 && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  // Adds results to the table of added results, which is kept at most half full.
+  private void addToTable(long key, int added, double addedWins) {
+    if (2 * (count + 1) > keys.length) {
+      long[] oldKeys = keys;
+      int[] oldVisits = visits;
+      double[] oldWins = wins;
+      keys = new long[2 * oldKeys.length];
+      visits = new int[keys.length];
+      wins = new double[keys.length];
+      for (int i = 0; i < oldKeys.length; i++) {
+        if (oldVisits[i] != 0) {
+          int slot = find(oldKeys[i]);
+          keys[slot] = oldKeys[i];
+          visits[slot] = oldVisits[i];
+          wins[slot] = oldWins[i];
+        }
+      }
+    }
+    int slot = find(key);
+    if (visits[slot] == 0) {
+      keys[slot] = key;
+      count++;
+    }
+    visits[slot] = (int) Math.min((long) visits[slot] + added, Integer.MAX_VALUE);
+    wins[slot] += addedWins;
+  }
+
+  // Puts an entry into a new snapshot table.
+  private static void put(ByteBuffer table, int capacity, long key, int entryVisits,
+      double entryWins) {
+    int mask = capacity - 1;
+    int slot = hash(key) & mask;
+    while (table.getInt(HEADER_SIZE + slot * RECORD_SIZE + 8) != 0) {
+      slot = (slot + 1) & mask;
+    }
+    int offset = HEADER_SIZE + slot * RECORD_SIZE;
+    table.putLong(offset, key).putInt(offset + 8, entryVisits)
+        .putFloat(offset + 12, (float) entryWins);
+  }
+
+  // Slot hash of a key, the Zobrist keys are random already.
+  private static int hash(long key) {
+    return (int) (key ^ (key >>> 32));
+  }
+}
@@ -0,0 +1,178 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The symmetries of a board, other than the identity, as maps of the bitboard indices.
+ *
+ * <p>With gravity a board only has the mirror image left to right. Without gravity
+ * it is also symmetric top to bottom and under the half turn, and a square board under
+ * the quarter turns and the two diagonal mirrors, 7 symmetries in all.
+ * A position and its image under a symmetry have the same value, so a search only needs
+ * one move of every set of moves that lead to symmetric positions.
+ */
+final class Symmetry {
+  private static final int MIRROR_COLUMNS = 1;
+  private static final int MIRROR_ROWS = 2;
+  private static final int TRANSPOSE = 4;
+
+  private connectkParameters parameters;
+  private int[][] maps;   // maps[s][bit index], the cell it is mapped to by symmetry s
+
+  /**
+   * Get the symmetries of a board.
+   * @param parameters the board parameters
+   * @return a Symmetry object, not null
+   */
+  public static Symmetry getInstance(connectkParameters parameters) {
+    assert (parameters != null);
+
+    return new Symmetry(parameters);
+  }
+
+  /**
+   * Constructor
+   * @param parameters the board parameters
+   */
+  protected Symmetry(connectkParameters parameters) {
+    this.parameters = parameters;
+    int rows = parameters.getRows();
+    int columns = parameters.getColumns();
+    // Every symmetry is a transpose (square boards only) followed by the mirrors.
+    List<int[]> list = new ArrayList<>();
+    for (int code = 1; code < 8; code++) {
+      if ((parameters.isGravity() && code != MIRROR_COLUMNS)
+          || ((code & TRANSPOSE) != 0 && rows != columns)) {
+        continue;
+      }
+      int[] map = new int[Bitboard.size(parameters)];
+      for (int index = 0; index < map.length; index++) {
+        map[index] = index;   // the sentinel bits are never set
+      }
+      for (int row = 0; row < rows; row++) {
+        for (int column = 0; column < columns; column++) {
+          int mappedRow = (code & TRANSPOSE) != 0 ? column : row;
+          int mappedColumn = (code & TRANSPOSE) != 0 ? row : column;
+          if ((code & MIRROR_ROWS) != 0) {
+            mappedRow = rows - 1 - mappedRow;
+          }
+          if ((code & MIRROR_COLUMNS) != 0) {
+            mappedColumn = columns - 1 - mappedColumn;
+          }
+          map[Bitboard.index(parameters, row, column)] =
+              Bitboard.index(parameters, mappedRow, mappedColumn);
+        }
+      }
+      list.add(map);
+    }
+    maps = list.toArray(new int[list.size()][]);
+  }
+
+  /**
+   * Getter for the parameters of the board.
+   * @return the parameters given to getInstance
+   */
+  public connectkParameters getconnectkParameters() {
+    return parameters;
+  }
+
+  /**
+   * Number of symmetries, without the identity.
+   * @return 1 with gravity, 3 or 7 without
+   */
+  public int getCount() {
+    return maps.length;
+  }
+
+  /**
+   * Image of a packed move under a symmetry.
+   * @param symmetry the symmetry, less than getCount
+   * @param move the packed move
+   * @return the packed move it is mapped to
+   */
+  public int mapMove(int symmetry, int move) {
+    assert (0 <= symmetry && symmetry < maps.length);
+
+    int height = Bitboard.height(parameters);
+    int index = maps[symmetry][Bitboard.index(parameters, GameMove.unpackRow(move),
+        GameMove.unpackColumn(move))];
+    return GameMove.pack(index % height, index / height);
+  }
+
+  /**
+   * Finds the symmetries that map a position onto itself.
+   * @param state the position
+   * @return a bit mask, bit s is set if symmetry s maps the position onto itself
+   */
+  public int getStabilizer(SearchState state) {
+    assert (state != null);
+
+    int stabilizer = 0;
+    for (int symmetry = 0; symmetry < maps.length; symmetry++) {
+      if (state.isMappedOnto(maps[symmetry], state)) {
+        stabilizer |= 1 << symmetry;
+      }
+    }
+    return stabilizer;
+  }
+
+  /**
+   * Removes all but one of every set of moves that lead to symmetric positions,
+   * from a position that is mapped onto itself by the symmetries of the stabilizer.
+   * The smallest packed move of every set is kept, in the same order as before.
+   * @param moves the valid packed moves of the position
+   * @param count the number of moves
+   * @param stabilizer the symmetries of the position, see getStabilizer
+   * @return the number of moves kept at the start of moves
+   */
+  public int removeSymmetricMoves(int[] moves, int count, int stabilizer) {
+    assert (moves != null);
+
+    int kept = 0;
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      boolean smallest = true;
+      for (int symmetry = 0; symmetry < maps.length && smallest; symmetry++) {
+        if ((stabilizer & 1 << symmetry) != 0 && mapMove(symmetry, move) < move) {
+          smallest = false;
+        }
+      }
+      if (smallest) {
+        moves[kept++] = move;
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Zobrist key of the image of a position under a symmetry.
+   * @param state the position
+   * @param symmetry the symmetry, less than getCount
+   * @return the key, the same as getKey of the mapped position
+   */
+  public long getKey(SearchState state, int symmetry) {
+    assert (state != null);
+    assert (0 <= symmetry && symmetry < maps.length);
+
+    return state.getKey(maps[symmetry]);
+  }
+
+  /**
+   * Finds a symmetry that maps one position onto another.
+   * @param from the position to map
+   * @param to the position it should be mapped onto
+   * @return the symmetry or -1 if there is none
+   */
+  public int findSymmetry(SearchState from, SearchState to) {
+    assert (from != null);
+    assert (to != null);
+
+    for (int symmetry = 0; symmetry < maps.length; symmetry++) {
+      if (from.isMappedOnto(maps[symmetry], to)) {
+        return symmetry;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,37 @@
+package game;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread pools of the search players.
+ */
+final class ThreadPools {
+
+  private ThreadPools() {
+  }
+
+  /**
+   * Creates a fixed size pool of daemon threads. Idle threads end after a second,
+   * so players of finished games neither keep threads alive nor keep the JVM from exiting,
+   * and new threads are started when the player searches again.
+   * @param name name of the threads
+   * @param threads number of threads, at least 1
+   * @return the pool, not null
+   */
+  static ExecutorService newDaemonPool(String name, int threads) {
+    assert (name != null);
+    assert (threads >= 1);
+
+    ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), runnable -> {
+          Thread thread = new Thread(runnable, name);
+          thread.setDaemon(true);
+          return thread;
+        });
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+}
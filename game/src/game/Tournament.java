@@ -0,0 +1,362 @@
+package game;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless driver playing many games between two players concurrently, without the GUI.
+ *
+ * <p>Usage: java game.Tournament [--option value]... with the options
+ * player1, player2 (random, mcts, mcts-guided, mcts-symmetric, mcts-ponder,
+ * root-parallel:threads, tree-parallel:threads, alphabeta),
+ * games, threads, seed, rows, columns, win, gravity, time, iterations, nodes and
+ * metrics (a file the engine metrics of all games are written to as JSON, see Metrics).
+ * The players swap sides every game, so player1 moves first in the even games.
+ */
+public class Tournament {
+  private static final double Z = 1.96;  // 95% confidence
+  private static final List<String> OPTIONS = Arrays.asList("player1", "player2", "games",
+      "threads", "seed", "rows", "columns", "win", "gravity", "time", "iterations", "nodes",
+      "metrics");
+  private static final String USAGE = "Usage: java game.Tournament [--option value]... with "
+      + "the options --" + String.join(", --", OPTIONS);
+
+  private connectkParameters parameters;
+  private String playerOne;
+  private String playerTwo;
+  private int games;
+  private int threads;
+  private long seed;
+
+  /**
+   * A way to create fresh players for every game.
+   */
+  interface PlayerFactory {
+    /**
+     * Creates a player.
+     * @param id the id of the player, 1 or 2
+     * @param seed seed of the random number generator
+     * @return the player
+     */
+    Player create(int id, long seed);
+  }
+
+  /**
+   * Constructor
+   * @param parameters The parameters of every game
+   * @param playerOne Name of the first player, see getPlayerFactory
+   * @param playerTwo Name of the second player
+   * @param games Number of games
+   * @param threads Number of games played at the same time
+   * @param seed Seed of the players, game i uses seed + i
+   */
+  public Tournament(connectkParameters parameters, String playerOne, String playerTwo,
+      int games, int threads, long seed) {
+    assert (parameters != null);
+    assert (games >= 1);
+    assert (threads >= 1);
+
+    getPlayerFactory(playerOne);
+    getPlayerFactory(playerTwo);
+    this.parameters = parameters;
+    this.playerOne = playerOne;
+    this.playerTwo = playerTwo;
+    this.games = games;
+    this.threads = threads;
+    this.seed = seed;
+  }
+
+  /**
+   * Runs the tournament from the command line and prints the results.
+   * @param args options, see class comment
+   * @throws IOException if the metrics cannot be written
+   */
+  public static void main(String[] args) throws IOException {
+    Map<String, String> options = parseOptions(args);
+    connectkParameters parameters = new connectkParameters(
+        Integer.parseInt(options.getOrDefault("rows", "6")),
+        Integer.parseInt(options.getOrDefault("columns", "7")),
+        Integer.parseInt(options.getOrDefault("win", "4")),
+        Boolean.parseBoolean(options.getOrDefault("gravity", "true")),
+        Long.parseLong(options.getOrDefault("time", "100")),
+        Long.parseLong(options.getOrDefault("iterations", "0")),
+        Long.parseLong(options.getOrDefault("nodes", "0")));
+    Tournament tournament = new Tournament(parameters,
+        options.getOrDefault("player1", "mcts"),
+        options.getOrDefault("player2", "random"),
+        Integer.parseInt(options.getOrDefault("games", "100")),
+        Integer.parseInt(options.getOrDefault("threads",
+            String.valueOf(Runtime.getRuntime().availableProcessors()))),
+        Long.parseLong(options.getOrDefault("seed", String.valueOf(System.nanoTime()))));
+    String metrics = options.get("metrics");
+    Metrics.setEnabled(metrics != null);
+    System.out.println(tournament.run());
+    if (metrics != null) {
+      Files.write(Paths.get(metrics), Metrics.toJson().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Reads the options of the command line.
+   * @param args pairs of --option and value
+   * @return the values by option name, without the leading --
+   * @throws IllegalArgumentException with the usage if an option is unknown or has no value
+   */
+  static Map<String, String> parseOptions(String[] args) {
+    assert (args != null);
+
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i < args.length; i += 2) {
+      if (!args[i].startsWith("--") || !OPTIONS.contains(args[i].substring(2))) {
+        throw new IllegalArgumentException("Tournament::main: expected an option, " + args[i]
+            + "\n" + USAGE);
+      }
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException("Tournament::main: missing value of " + args[i]
+            + "\n" + USAGE);
+      }
+      options.put(args[i].substring(2), args[i + 1]);
+    }
+    return options;
+  }
+
+  /**
+   * Creates the factory for a player name.
+   * @param name random, mcts, mcts-guided (guided rollouts and progressive bias),
+   *     mcts-symmetric (symmetric positions merged), mcts-ponder (searches on the
+   *     opponent's time), root-parallel:threads, tree-parallel:threads or alphabeta
+   * @return the factory
+   * @throws IllegalArgumentException if the name is unknown
+   */
+  static PlayerFactory getPlayerFactory(String name) {
+    assert (name != null);
+
+    String[] parts = name.split(":");
+    int threads = parts.length > 1 ? Integer.parseInt(parts[1]) : 1;
+    switch (parts[0]) {
+      case "random":
+        return RandomPlayer::getInstance;
+      case "mcts":
+        return MonteCarloAlgorithmPlayer::getInstance;
+      case "mcts-guided":
+        return (id, seed) -> {
+          MonteCarloAlgorithmPlayer player =
+              (MonteCarloAlgorithmPlayer) MonteCarloAlgorithmPlayer.getInstance(id, seed);
+          player.setGuidedRollouts(true);
+          player.setProgressiveBias(1);
+          return player;
+        };
+      case "mcts-symmetric":
+        return (id, seed) -> {
+          MonteCarloAlgorithmPlayer player =
+              (MonteCarloAlgorithmPlayer) MonteCarloAlgorithmPlayer.getInstance(id, seed);
+          player.setSymmetric(true);
+          return player;
+        };
+      case "mcts-ponder":
+        return (id, seed) -> {
+          MonteCarloAlgorithmPlayer player =
+              (MonteCarloAlgorithmPlayer) MonteCarloAlgorithmPlayer.getInstance(id, seed);
+          player.setPondering(true);
+          return player;
+        };
+      case "root-parallel":
+        return (id, seed) -> RootParallelMonteCarloPlayer.getInstance(id, threads, seed);
+      case "tree-parallel":
+        return (id, seed) -> TreeParallelMonteCarloPlayer.getInstance(id, threads, seed);
+      case "alphabeta":
+        return (id, seed) -> AlphaBetaPlayer.getInstance(id);
+      default:
+        throw new IllegalArgumentException("Tournament::getPlayerFactory: unknown player, "
+            + name);
+    }
+  }
+
+  /**
+   * Plays all games and collects the results.
+   * @return the results from the point of view of the first player
+   */
+  public Result run() {
+    PlayerFactory first = getPlayerFactory(playerOne);
+    PlayerFactory second = getPlayerFactory(playerTwo);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long startTime = System.nanoTime();
+    try {
+      List<Future<int[]>> results = new ArrayList<>();
+      for (int i = 0; i < games; i++) {
+        long gameSeed = seed + i;
+        boolean firstStarts = i % 2 == 0;
+        results.add(executor.submit(() -> playGame(first, second, firstStarts, gameSeed)));
+      }
+
+      Result result = new Result(playerOne, playerTwo, parameters);
+      for (Future<int[]> future : results) {
+        int[] game = future.get();
+        result.add(game[0], game[1]);
+      }
+      result.seconds = (System.nanoTime() - startTime) / 1e9;
+      return result;
+    } catch (InterruptedException error) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Tournament::run: interrupted.", error);
+    } catch (ExecutionException error) {
+      throw new IllegalStateException("Tournament::run: game failed.", error.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // Play one game, returns the outcome for the first player (1 win, 0 draw, -1 loss)
+  // and the number of moves.
+  private int[] playGame(PlayerFactory first, PlayerFactory second, boolean firstStarts,
+      long gameSeed) {
+    int firstId = firstStarts ? 1 : 2;
+    Player firstPlayer = first.create(firstId, gameSeed);
+    Player secondPlayer = second.create(3 - firstId, ~gameSeed);
+    Game game = firstStarts ? new Game(firstPlayer, secondPlayer, new State(parameters))
+        : new Game(secondPlayer, firstPlayer, new State(parameters));
+    int moves = 0;
+    while (!game.isDone()) {
+      game.update();
+      moves++;
+    }
+    stopPondering(firstPlayer);
+    stopPondering(secondPlayer);
+    int winner = game.getWinner();
+    int outcome = winner == 0 ? 0 : (winner == firstId ? 1 : -1);
+    return new int[] {outcome, moves};
+  }
+
+  // Stops the background search of a pondering player.
+  private static void stopPondering(Player player) {
+    if (player instanceof MonteCarloAlgorithmPlayer) {
+      ((MonteCarloAlgorithmPlayer) player).stopPondering();
+    }
+  }
+
+  /**
+   * Wins, draws and losses of the first player with confidence intervals.
+   */
+  static class Result {
+    private String playerOne;
+    private String playerTwo;
+    private connectkParameters parameters;
+    private int wins = 0;
+    private int draws = 0;
+    private int losses = 0;
+    private long moves = 0;
+    private double seconds = 0;
+
+    Result(String playerOne, String playerTwo, connectkParameters parameters) {
+      this.playerOne = playerOne;
+      this.playerTwo = playerTwo;
+      this.parameters = parameters;
+    }
+
+    // Adds the outcome of one game.
+    private void add(int outcome, int gameMoves) {
+      if (outcome > 0) {
+        wins++;
+      } else if (outcome < 0) {
+        losses++;
+      } else {
+        draws++;
+      }
+      moves += gameMoves;
+    }
+
+    /**
+     * Number of games played.
+     * @return wins + draws + losses
+     */
+    public int getGames() {
+      return wins + draws + losses;
+    }
+
+    /**
+     * Getter for wins of the first player.
+     * @return the number of wins
+     */
+    public int getWins() {
+      return wins;
+    }
+
+    /**
+     * Getter for draws.
+     * @return the number of draws
+     */
+    public int getDraws() {
+      return draws;
+    }
+
+    /**
+     * Getter for losses of the first player.
+     * @return the number of losses
+     */
+    public int getLosses() {
+      return losses;
+    }
+
+    /**
+     * Score of the first player, a draw counts half.
+     * @return the score between 0 and 1
+     */
+    public double getScore() {
+      return (wins + 0.5 * draws) / getGames();
+    }
+
+    /**
+     * Wilson score interval of a rate.
+     * @param count number of games with the outcome
+     * @param games number of games
+     * @return lower and upper bound of the 95% interval
+     */
+    static double[] wilsonInterval(int count, int games) {
+      double rate = (double) count / games;
+      double denominator = 1 + Z * Z / games;
+      double center = (rate + Z * Z / (2 * games)) / denominator;
+      double margin = Z * Math.sqrt(rate * (1 - rate) / games + Z * Z / (4.0 * games * games))
+          / denominator;
+      return new double[] {Math.max(0, center - margin), Math.min(1, center + margin)};
+    }
+
+    @Override
+    public String toString() {
+      int games = getGames();
+      StringBuilder builder = new StringBuilder();
+      builder.append(playerOne).append(" vs ").append(playerTwo).append(", ")
+          .append(parameters).append(", ").append(games).append(" games\n");
+      appendRate(builder, "wins", wins, games);
+      appendRate(builder, "draws", draws, games);
+      appendRate(builder, "losses", losses, games);
+
+      // Normal approximation for the score, each game scores 1, 0.5 or 0.
+      double score = getScore();
+      double variance = (wins + 0.25 * draws) / games - score * score;
+      double margin = Z * Math.sqrt(Math.max(variance, 0) / games);
+      builder.append(String.format("score:  %.3f [%.3f, %.3f]%n", score, score - margin,
+          score + margin));
+      builder.append(String.format("%d moves in %.1f s, %.1f moves/s", moves, seconds,
+          moves / seconds));
+      return builder.toString();
+    }
+
+    // Append one line with a rate and its interval.
+    private static void appendRate(StringBuilder builder, String name, int count, int games) {
+      double[] interval = wilsonInterval(count, games);
+      builder.append(String.format("%-7s %6d  %.3f [%.3f, %.3f]%n", name + ":", count,
+          (double) count / games, interval[0], interval[1]));
+    }
+  }
+}
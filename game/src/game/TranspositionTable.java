@@ -0,0 +1,115 @@
+package game;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results keyed by the 64-bit Zobrist key of a position.
+ *
+ * <p>Every slot holds the full key and one packed entry with the value, the depth it was
+ * searched to, whether the value is exact or a bound, and the best move. A new entry
+ * replaces the old one in its slot unless the old one is for the same position and
+ * was searched deeper. get returns 0 if the position is not in the table.
+ */
+class TranspositionTable {
+  /** The value is exact. */
+  public static final int EXACT = 0;
+  /** The value is a lower bound, the search failed high. */
+  public static final int LOWER = 1;
+  /** The value is an upper bound, the search failed low. */
+  public static final int UPPER = 2;
+  /** Move of entries without a best move. */
+  public static final int NO_MOVE = 0xffff;
+
+  private static final long VALID = 1L << 26;
+
+  private long[] keys;
+  private long[] entries;
+  private int mask;
+
+  /**
+   * Constructor
+   * @param bits The table has 2^bits slots of 16 bytes
+   */
+  public TranspositionTable(int bits) {
+    assert (0 < bits && bits <= 30);
+
+    keys = new long[1 << bits];
+    entries = new long[1 << bits];
+    mask = (1 << bits) - 1;
+  }
+
+  /**
+   * Looks up a position.
+   * @param key Zobrist key of the position
+   * @return the packed entry, 0 if the position is not in the table
+   */
+  public long get(long key) {
+    int slot = (int) (key ^ (key >>> 32)) & mask;
+    return keys[slot] == key ? entries[slot] : 0;
+  }
+
+  /**
+   * Stores a search result.
+   * @param key Zobrist key of the position
+   * @param value the value
+   * @param depth the depth searched, at most 255
+   * @param bound EXACT, LOWER or UPPER
+   * @param move the best packed move or NO_MOVE
+   */
+  public void put(long key, int value, int depth, int bound, int move) {
+    assert (0 <= depth && depth <= 0xff);
+    assert (bound == EXACT || bound == LOWER || bound == UPPER);
+    assert (0 <= move && move <= NO_MOVE);
+
+    int slot = (int) (key ^ (key >>> 32)) & mask;
+    if (keys[slot] == key && entries[slot] != 0 && getDepth(entries[slot]) > depth) {
+      return;
+    }
+    keys[slot] = key;
+    entries[slot] = (long) value << 32 | VALID | (long) bound << 24 | depth << 16 | move;
+  }
+
+  /**
+   * Empties the table.
+   */
+  public void clear() {
+    Arrays.fill(keys, 0);
+    Arrays.fill(entries, 0);
+  }
+
+  /**
+   * Value of an entry.
+   * @param entry the packed entry
+   * @return the value
+   */
+  public static int getValue(long entry) {
+    return (int) (entry >> 32);
+  }
+
+  /**
+   * Depth of an entry.
+   * @param entry the packed entry
+   * @return the depth
+   */
+  public static int getDepth(long entry) {
+    return (int) (entry >>> 16) & 0xff;
+  }
+
+  /**
+   * Bound of an entry.
+   * @param entry the packed entry
+   * @return EXACT, LOWER or UPPER
+   */
+  public static int getBound(long entry) {
+    return (int) (entry >>> 24) & 0x3;
+  }
+
+  /**
+   * Best move of an entry.
+   * @param entry the packed entry
+   * @return the packed move or NO_MOVE
+   */
+  public static int getMove(long entry) {
+    return (int) entry & 0xffff;
+  }
+}
@@ -0,0 +1,311 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Monte Carlo Tree Search player where several threads search the same tree
+ * (tree parallelisation). Node statistics are updated lock-free and every node on the path
+ * of a running simulation carries a virtual loss, so concurrent threads spread over
+ * different parts of the tree instead of all following the same path.
+ */
+class TreeParallelMonteCarloPlayer implements Player {
+  private int id;
+  private int threads;
+  private SplittableRandom random;
+  private ExecutorService executor;
+  private GameMove chosenGameMove;
+  private volatile ConcurrentMonteCarloNode root;
+  private volatile SearchBudget budget;  // budget of the current or last search
+  private AtomicLong iterations = new AtomicLong();  // simulations of the current search
+  private AtomicLong nodes = new AtomicLong();       // nodes created by the current search
+  private double balance = 2;
+  private int virtualLoss = 1;
+
+  /**
+   * Get an instance of a TreeParallelMonteCarloPlayer
+   *
+   * @param id  the id of the player, 1 or 2
+   * @param threads  the number of search threads, at least 1
+   * @return a TreeParallelMonteCarloPlayer object, not null
+   */
+  public static Player getInstance(int id, int threads) {
+    assert (id == 1 || id == 2);
+    assert (threads >= 1);
+
+    return new TreeParallelMonteCarloPlayer(id, threads, new SplittableRandom());
+  }
+
+  /**
+   * Get an instance of a TreeParallelMonteCarloPlayer with a seeded random number generator.
+   * Threads share the tree, so moves are only reproducible with a single thread.
+   *
+   * @param id  the id of the player, 1 or 2
+   * @param threads  the number of search threads, at least 1
+   * @param seed  the seed
+   * @return a TreeParallelMonteCarloPlayer object, not null
+   */
+  public static Player getInstance(int id, int threads, long seed) {
+    assert (id == 1 || id == 2);
+    assert (threads >= 1);
+
+    return new TreeParallelMonteCarloPlayer(id, threads, new SplittableRandom(seed));
+  }
+
+  /**
+   * Constructor
+   * @param id Player ID
+   * @param threads Number of search threads
+   * @param random Random number generator, used to seed the generators of the threads
+   */
+  protected TreeParallelMonteCarloPlayer(int id, int threads, SplittableRandom random) {
+    assert (id == 1 || id == 2);
+    assert (threads >= 1);
+    assert (random != null);
+
+    this.id = id;
+    this.threads = threads;
+    this.random = random;
+    this.executor = ThreadPools.newDaemonPool("TreeParallelMonteCarloPlayer-" + id, threads);
+  }
+
+  /**
+   * Sets the exploration constant of the UCB formula, 2 by default as in
+   * MonteCarloAlgorithmPlayer.
+   * @param balance the exploration constant
+   */
+  public void setBalance(double balance) {
+    this.balance = balance;
+  }
+
+  /**
+   * Sets the number of visits added to every node on the path of a running simulation.
+   * @param virtualLoss the virtual loss, 0 to disable
+   */
+  public void setVirtualLoss(int virtualLoss) {
+    assert (virtualLoss >= 0);
+
+    this.virtualLoss = virtualLoss;
+  }
+
+  @Override
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Searches a new shared tree with all threads for the time limit and chooses the move
+   * with the highest win rate. Cancelling or interrupting the search stops all threads.
+   * @param state Current state
+   */
+  @Override
+  public void calculateMove(State state) {
+    assert (state != null);
+    assert (!state.isDone());
+
+    root = new ConcurrentMonteCarloNode(-1);
+    iterations.set(0);
+    nodes.set(0);
+    budget = new SearchBudget(state.getconnectkParameters());
+    List<Future<?>> searches = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      Search search = new Search(state, random.split());
+      searches.add(executor.submit(() -> search.run(budget)));
+    }
+    waitFor(searches);
+    ConcurrentMonteCarloNode bestChild = selectBestChild(root);
+
+    assert (bestChild != null);
+
+    int move = bestChild.getMove();
+    chosenGameMove = GameMove.getInstance(move);
+  }
+
+  // Choose move with highest relative win rate based on simulations.
+  private static ConcurrentMonteCarloNode selectBestChild(ConcurrentMonteCarloNode root) {
+    double bestScore = Double.NEGATIVE_INFINITY;
+    ConcurrentMonteCarloNode bestChild = null;
+    for (int i = 0; i < root.getChildSlots(); i++) {
+      ConcurrentMonteCarloNode child = root.getChild(i);
+      if (child != null && child.getVisits() > 0) {
+        double score = (double) child.getWins() / child.getVisits();
+        if (score > bestScore) {
+          bestScore = score;
+          bestChild = child;
+        }
+      }
+    }
+    return bestChild;
+  }
+
+  /**
+   * Getter for the root of the last search.
+   * @return the root node, null before the first search
+   */
+  ConcurrentMonteCarloNode getRoot() {
+    return root;
+  }
+
+  // Waits for all searches, an interrupt cancels them and is passed on once they are done.
+  private void waitFor(List<Future<?>> searches) {
+    boolean interrupted = false;
+    for (Future<?> search : searches) {
+      while (true) {
+        try {
+          search.get();
+          break;
+        } catch (InterruptedException error) {
+          interrupted = true;
+          cancel();
+        } catch (ExecutionException error) {
+          throw new IllegalStateException("TreeParallelMonteCarloPlayer::calculateMove: "
+              + "search failed.", error.getCause());
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public GameMove getMove() {
+    assert (chosenGameMove != null);
+
+    return chosenGameMove;
+  }
+
+  @Override
+  public void cancel() {
+    SearchBudget current = budget;
+    if (current != null) {
+      current.cancel();
+    }
+  }
+
+  /**
+   * The move with the highest win rate in the shared tree so far.
+   */
+  @Override
+  public GameMove getBestMoveSoFar() {
+    ConcurrentMonteCarloNode current = root;
+    ConcurrentMonteCarloNode bestChild = current == null ? null : selectBestChild(current);
+    return bestChild == null ? null : GameMove.getInstance(bestChild.getMove());
+  }
+
+  @Override
+  public String toString() {
+    return "Monte Carlo Tree Search (" + threads + " threads, tree parallel)";
+  }
+
+  @Override
+  public String getMessage() {
+    return null;
+  }
+
+  /**
+   * The simulations of one thread, with its own position and random number generator.
+   */
+  private class Search {
+    private SearchState state;
+    private SplittableRandom random;
+    private ConcurrentMonteCarloNode[] path;
+    private int[] moves;
+
+    Search(State state, SplittableRandom random) {
+      connectkParameters parameters = state.getconnectkParameters();
+      this.state = state.toSearchState();
+      this.random = random;
+      this.moves = new int[parameters.getRows() * parameters.getColumns()];
+      this.path = new ConcurrentMonteCarloNode[moves.length + 1];
+    }
+
+    // Run simulations until the budget shared by all threads is used up,
+    // or cancelled once the tree has a node to choose.
+    void run(SearchBudget budget) {
+      while (!budget.isExhausted(iterations.getAndIncrement(), nodes.get())
+          || nodes.get() == 0) {
+        runSimulation();
+      }
+    }
+
+    // Walk down the shared tree, add a child, roll out and record the result.
+    private void runSimulation() {
+      ConcurrentMonteCarloNode node = root;
+      int length = 0;
+      node.addVirtualLoss(virtualLoss);
+      path[length++] = node;
+      while (!state.isDone()) {
+        node.expand(state, moves, random);
+        ConcurrentMonteCarloNode child = node.addChild();
+        boolean created = child != null;
+        if (created) {
+          nodes.incrementAndGet();
+        }
+        if (!created) {
+          child = calculateBestChild(node);
+        }
+        if (child == null) {
+          break;  // the only children are being created by other threads
+        }
+        node = child;
+        node.addVirtualLoss(virtualLoss);
+        state.makeMove(node.getMove());
+        path[length++] = node;
+        if (created) {
+          break;
+        }
+      }
+
+      int winner = runRollout();
+
+      for (int i = length - 1; i >= 0; i--) {
+        int lastPlayer = (state.getCurrentPlayer() == 1) ? 2 : 1;
+        path[i].recordResult(winner == lastPlayer, virtualLoss);
+        if (i > 0) {
+          state.unmakeMove();
+        }
+      }
+    }
+
+    // Plays uniformly random moves until the game is done and takes them back again.
+    private int runRollout() {
+      int depth = MonteCarloAlgorithmPlayer.playRollout(state, random, false);
+      int winner = state.getWinner();
+      for (int i = 0; i < depth; i++) {
+        state.unmakeMove();
+      }
+      return winner;
+    }
+
+    // Best child based on UCB, visits include the virtual losses of other threads.
+    private ConcurrentMonteCarloNode calculateBestChild(ConcurrentMonteCarloNode node) {
+      double numberOfPlays = node.getVisits();
+      ConcurrentMonteCarloNode bestChild = null;
+      double bestScore = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < node.getChildSlots(); i++) {
+        ConcurrentMonteCarloNode child = node.getChild(i);
+        if (child == null || child.getVisits() == 0) {
+          continue;
+        }
+        double score = calculateScore(child, numberOfPlays);
+        if (score > bestScore) {
+          bestScore = score;
+          bestChild = child;
+        }
+      }
+      return bestChild;
+    }
+
+    // Calculate the score of a move based on the UCB formula.
+    private double calculateScore(ConcurrentMonteCarloNode child, double numberOfPlays) {
+      double visits = child.getVisits();
+      return child.getWins() / visits + balance * Math.sqrt(Math.log(numberOfPlays) / visits);
+    }
+  }
+}
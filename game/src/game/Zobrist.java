@@ -0,0 +1,58 @@
+package game;
+
+/**
+ * Zobrist keys: a fixed random 64-bit number for every player and bitboard index.
+ * The key of a position is the xor of the numbers of all discs on the board, so it
+ * can be updated with a single xor whenever a disc is placed or removed.
+ */
+final class Zobrist {
+  private static final int SIZE = connectkParameters.COLUMNS_MAX * (connectkParameters.ROWS_MAX + 1);
+  private static final long[] KEYS = new long[2 * SIZE];
+
+  static {
+    // SplitMix64 with a fixed seed, so keys are the same in every run.
+    long seed = 0x5DEECE66DL;
+    for (int i = 0; i < KEYS.length; i++) {
+      seed += 0x9E3779B97F4A7C15L;
+      long z = seed;
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      KEYS[i] = z ^ (z >>> 31);
+    }
+  }
+
+  private Zobrist() {
+  }
+
+  /**
+   * Random number of a disc.
+   * @param player the player, 1 or 2
+   * @param index the bitboard index of the disc
+   * @return the number to xor into the key
+   */
+  static long key(int player, int index) {
+    assert (player == 1 || player == 2);
+
+    return KEYS[(player - 1) * SIZE + index];
+  }
+
+  /**
+   * Computes the key of a whole board from scratch.
+   * @param bitboard the discs of both players, see State
+   * @param words number of words per player
+   * @return the key
+   */
+  static long hash(long[] bitboard, int words) {
+    long hash = 0;
+    for (int player = 1; player <= 2; player++) {
+      for (int word = 0; word < words; word++) {
+        long bits = bitboard[(player - 1) * words + word];
+        while (bits != 0) {
+          hash ^= key(player, word * 64 + Long.numberOfTrailingZeros(bits));
+          bits &= bits - 1;
+        }
+      }
+    }
+    return hash;
+  }
+}
@@ -6,6 +6,8 @@ class connectkParameters {
   private int winLength;
   private boolean gravity;
   private long timeLimit;
+  private long iterationLimit;
+  private long nodeLimit;
 
   public static final int ROWS_MIN = 1;
   public static final int ROWS_MAX = 30;
@@ -24,6 +26,23 @@ class connectkParameters {
    * @param timeLimit Time (in milliseconds) given for the MCTS algorithm to run
    */
   public connectkParameters(int rows, int columns, int winLength, boolean gravity, long timeLimit) {
+    this(rows, columns, winLength, gravity, timeLimit, 0, 0);
+  }
+
+  /**
+   * Constructs a new connectkParameters objects with additional search budgets.
+   * A search stops at whichever limit is reached first, 0 means no limit.
+   * The time limit only counts as no limit if one of the other limits is set.
+   * @param rows Number of rows on the board
+   * @param columns Number of columns on the board
+   * @param winLength Number of linked discs required to win
+   * @param gravity Toggle gravity
+   * @param timeLimit Time (in milliseconds) given for the MCTS algorithm to run
+   * @param iterationLimit Maximum number of simulations per move, 0 for no limit
+   * @param nodeLimit Maximum number of tree nodes created per move, 0 for no limit
+   */
+  public connectkParameters(int rows, int columns, int winLength, boolean gravity, long timeLimit,
+      long iterationLimit, long nodeLimit) {
     if (rows > ROWS_MAX || rows < ROWS_MIN) {
       throw new IllegalArgumentException("connectkParameters:connectkParameters: "
             + "rows out of bounds, " + rows);
@@ -36,12 +55,22 @@ class connectkParameters {
       throw new IllegalArgumentException("connectkParameters:connectkParameters: "
             + "winLength out of bounds, " + winLength);
     }
+    if (iterationLimit < 0) {
+      throw new IllegalArgumentException("connectkParameters:connectkParameters: "
+            + "iterationLimit negative, " + iterationLimit);
+    }
+    if (nodeLimit < 0) {
+      throw new IllegalArgumentException("connectkParameters:connectkParameters: "
+            + "nodeLimit negative, " + nodeLimit);
+    }
 
     this.rows = rows;
     this.columns = columns;
     this.winLength = winLength;
     this.gravity = gravity;
     this.timeLimit = timeLimit;
+    this.iterationLimit = iterationLimit;
+    this.nodeLimit = nodeLimit;
   }
 
   /**
@@ -84,6 +113,31 @@ class connectkParameters {
     return timeLimit;
   }
 
+  /**
+   * 
+   * @return Long Maximum number of simulations per move, 0 for no limit.
+   */
+  public long getIterationLimit() {
+    return iterationLimit;
+  }
+
+  /**
+   * 
+   * @return Long Maximum number of tree nodes created per move, 0 for no limit.
+   */
+  public long getNodeLimit() {
+    return nodeLimit;
+  }
+
+  /**
+   * 
+   * @return Boolean true if searches stop after getTimeLimit. A time limit of 0 is ignored
+   *     when an iteration or node limit is set.
+   */
+  public boolean hasTimeLimit() {
+    return timeLimit > 0 || (iterationLimit == 0 && nodeLimit == 0);
+  }
+
   @Override
   public String toString() {
     return "connectkParameters{" + "rows=" + rows + ", columns=" + columns 
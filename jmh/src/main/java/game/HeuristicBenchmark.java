@@ -0,0 +1,64 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time per call of Heuristic.evaluate on a middle game position, and of a move made and
+ * taken back with IncrementalHeuristic attached to the SearchState.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeuristicBenchmark {
+  private Heuristic heuristic = new Heuristic();
+  private SearchState searchState;
+  private int move;
+
+  /**
+   * Creates the SearchState of the position with an IncrementalHeuristic attached.
+   * @param position the position
+   */
+  @Setup(Level.Trial)
+  public void setUp(Position position) {
+    searchState = position.state.toSearchState();
+    searchState.setHeuristic(new IncrementalHeuristic(position.parameters));
+    move = SearchState.packMove(position.move.getRow(), position.move.getColumn());
+  }
+
+  /**
+   * Evaluates the position.
+   * @param position the position
+   * @return the heuristic value
+   */
+  @Benchmark
+  public double evaluate(Position position) {
+    return heuristic.evaluate(position.state);
+  }
+
+  /**
+   * Makes a move, evaluates the new position and takes the move back.
+   * @return the heuristic value after the move
+   */
+  @Benchmark
+  public double evaluateIncremental() {
+    searchState.makeMove(move);
+    double value = searchState.getHeuristic().evaluate(searchState);
+    searchState.unmakeMove();
+    return value;
+  }
+}
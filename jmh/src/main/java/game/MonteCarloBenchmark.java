@@ -0,0 +1,38 @@
+package game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simulations (selection, expansion, rollout and back-propagation) per second of
+ * MonteCarloAlgorithmPlayer. Every invocation searches the position with a new tree
+ * for Position.ITERATIONS simulations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MonteCarloBenchmark {
+
+  /**
+   * Searches the position.
+   * @param position the position
+   * @return the chosen move
+   */
+  @Benchmark
+  @OperationsPerInvocation(Position.ITERATIONS)
+  public GameMove calculateMove(Position position) {
+    Player player = MonteCarloAlgorithmPlayer.getInstance(position.state.getCurrentPlayer(), 1);
+    player.calculateMove(position.state);
+    return player.getMove();
+  }
+}
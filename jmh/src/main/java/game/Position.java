@@ -0,0 +1,61 @@
+package game;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A fixed middle game position shared by the benchmarks, for every board size
+ * (columns x rows / K) with gravity on and off.
+ *
+ * <p>The position is reached by random moves from a fixed seed until a third of the board
+ * is filled, so all runs of a configuration measure the same position.
+ */
+@State(Scope.Thread)
+public class Position {
+  /** Iteration limit of the parameters, used by the Monte Carlo benchmarks. */
+  public static final int ITERATIONS = 1000;
+
+  @Param({"7x6/4", "15x15/5", "30x30/6"})
+  public String board;
+
+  @Param({"true", "false"})
+  public boolean gravity;
+
+  connectkParameters parameters;
+  game.State state;
+  GameMove move;       // a valid move of state
+  GameMove lastMove;   // a cell of state with a disc
+
+  /**
+   * Creates the position.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    String[] sizes = board.split("[x/]");
+    parameters = new connectkParameters(Integer.parseInt(sizes[1]), Integer.parseInt(sizes[0]),
+        Integer.parseInt(sizes[2]), gravity, 0, ITERATIONS, 0);
+    int filled = parameters.getRows() * parameters.getColumns() / 3;
+    SplittableRandom random = new SplittableRandom(1);
+    do {
+      state = new game.State(parameters);
+      for (int i = 0; i < filled && !state.isDone(); i++) {
+        List<GameMove> moves = state.getValidGameMoves();
+        state = state.applyGameMove(moves.get(random.nextInt(moves.size())));
+      }
+    } while (state.isDone());
+
+    List<GameMove> moves = state.getValidGameMoves();
+    move = moves.get(moves.size() / 2);
+    for (GameMove cell : state) {
+      if (state.getPlayerAt(cell) != 0) {
+        lastMove = cell;
+      }
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package game;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time per call of the State operations used by every player: applying a move,
+ * generating the valid moves, checking for a win and finding the winning moves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark {
+
+  /**
+   * Applies a valid move, which copies the state.
+   * @param position the position
+   * @return the new state
+   */
+  @Benchmark
+  public game.State applyGameMove(Position position) {
+    return position.state.applyGameMove(position.move);
+  }
+
+  /**
+   * Generates the valid moves.
+   * @param position the position
+   * @return the moves
+   */
+  @Benchmark
+  public List<GameMove> getValidGameMoves(Position position) {
+    return position.state.getValidGameMoves();
+  }
+
+  /**
+   * Checks the lines through a disc for a win, as State.updateWinner does after every move.
+   * @param position the position
+   * @return true if the disc is part of a winning line
+   */
+  @Benchmark
+  public boolean updateWinner(Position position) {
+    return position.state.updateWinner(position.lastMove);
+  }
+
+  /**
+   * Finds the immediate winning moves of the player to move.
+   * @param position the position
+   * @return the moves
+   */
+  @Benchmark
+  public List<GameMove> getWinningGameMoves(Position position) {
+    return position.state.getWinningGameMoves(position.state.getCurrentPlayer());
+  }
+}